@@ -9,6 +9,7 @@ import fr.lesprojetscagnottes.core.authorization.name.OrganizationAuthorityName;
 import fr.lesprojetscagnottes.core.authorization.repository.AuthorityRepository;
 import fr.lesprojetscagnottes.core.authorization.repository.OrganizationAuthorityRepository;
 import fr.lesprojetscagnottes.core.budget.repository.BudgetRepository;
+import fr.lesprojetscagnottes.core.common.notification.NotificationListenerTask;
 import fr.lesprojetscagnottes.core.common.strings.StringGenerator;
 import fr.lesprojetscagnottes.core.donation.task.DonationProcessingTask;
 import fr.lesprojetscagnottes.core.organization.entity.OrganizationEntity;
@@ -51,6 +52,9 @@ public class LPCCoreApplication implements WebMvcConfigurer {
 	@Autowired
 	private Gson gson;
 
+	@Autowired
+	private NotificationListenerTask notificationListenerTask;
+
 	@Autowired
 	private DonationProcessingTask donationProcessingTask;
 
@@ -164,7 +168,8 @@ public class LPCCoreApplication implements WebMvcConfigurer {
 		}
 
 		prepareRootDirectories(dataStorageFolder);
-		new Timer().schedule(donationProcessingTask, 0, 500);
+		notificationListenerTask.start();
+		donationProcessingTask.start();
 	}
 
 	public void prepareRootDirectories(String directoryPath) {
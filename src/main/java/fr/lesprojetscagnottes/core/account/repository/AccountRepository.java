@@ -3,10 +3,13 @@ package fr.lesprojetscagnottes.core.account.repository;
 import fr.lesprojetscagnottes.core.account.entity.AccountEntity;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Set;
 
 public interface AccountRepository extends JpaRepository<AccountEntity, Long> {
@@ -15,10 +18,23 @@ public interface AccountRepository extends JpaRepository<AccountEntity, Long> {
 
     Set<AccountEntity> findAllByOwnerId(Long ownerId);
 
-    @Query(value = "select a.* from accounts a inner join users u on u.id = a.owner_id where a.budget_id = :budget_id", nativeQuery = true)
+    // Same order as the keyset listing below, accounts of owners without names come first
+    @Query(value = "select a.* from accounts a inner join users u on u.id = a.owner_id where a.budget_id = :budget_id " +
+            "order by coalesce(u.firstname, ''), coalesce(u.lastname, ''), u.id, a.id",
+            countQuery = "select count(*) from accounts a where a.budget_id = :budget_id", nativeQuery = true)
     Page<AccountEntity> findAllByBudgetIdOrderByUser(@Param("budget_id") Long budgetId, Pageable pageable);
 
+    // Owner names and IDs come from the cursor itself, accounts are then walked in users_name_idx order
+    @Query(value = "select a.* from accounts a inner join users u on u.id = a.owner_id where a.budget_id = :budget_id " +
+            "and (coalesce(u.firstname, ''), coalesce(u.lastname, ''), u.id, a.id) > (:firstname, :lastname, :owner_id, :after) " +
+            "order by coalesce(u.firstname, ''), coalesce(u.lastname, ''), u.id, a.id", nativeQuery = true)
+    Slice<AccountEntity> findAllByBudgetIdOrderByUserAfter(@Param("budget_id") Long budgetId, @Param("firstname") String firstname, @Param("lastname") String lastname,
+                                                           @Param("owner_id") long ownerId, @Param("after") long after, Pageable pageable);
+
     Set<AccountEntity> findAllByBudgetId(Long id);
 
     Set<AccountEntity> findAllByOwnerIdAndBudgetIdIn(Long id, Set<Long  > budgetIds);
+
+    @Query("select a from AccountEntity a join fetch a.budget where a.id in :ids")
+    List<AccountEntity> findAllWithBudgetByIdIn(@Param("ids") Collection<Long> ids);
 }
\ No newline at end of file
@@ -8,8 +8,7 @@ import fr.lesprojetscagnottes.core.budget.service.BudgetService;
 import fr.lesprojetscagnottes.core.common.exception.BadRequestException;
 import fr.lesprojetscagnottes.core.common.exception.ForbiddenException;
 import fr.lesprojetscagnottes.core.common.exception.NotFoundException;
-import fr.lesprojetscagnottes.core.organization.entity.OrganizationEntity;
-import fr.lesprojetscagnottes.core.organization.service.OrganizationService;
+import fr.lesprojetscagnottes.core.common.service.BatchLoaderService;
 import fr.lesprojetscagnottes.core.user.entity.UserEntity;
 import fr.lesprojetscagnottes.core.user.service.UserService;
 import lombok.extern.slf4j.Slf4j;
@@ -17,9 +16,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.security.Principal;
-import java.util.Date;
-import java.util.LinkedHashSet;
-import java.util.Set;
+import java.util.*;
 
 @Slf4j
 @Service
@@ -28,15 +25,15 @@ public class AccountService {
     @Autowired
     private BudgetService budgetService;
 
-    @Autowired
-    private OrganizationService organizationService;
-
     @Autowired
     private UserService userService;
 
     @Autowired
     private AccountRepository accountRepository;
 
+    @Autowired
+    private BatchLoaderService batchLoaderService;
+
     public AccountEntity getById(Long id) {
         return accountRepository.findById(id).orElse(null);
     }
@@ -46,18 +43,11 @@ public class AccountService {
         boolean userLoggedIn_isNotAdmin = userService.isNotAdmin(userLoggedInId);
         Set<AccountModel> models = new LinkedHashSet<>();
 
-        for(Long id : ids) {
-
-            // Retrieve full referenced objects
-            AccountEntity entity = getById(id);
-            if(entity == null) {
-                log.error("Impossible to get account {} : it doesn't exist", id);
-                continue;
-            }
+        for(AccountEntity entity : batchLoaderService.load("account", ids, accountRepository::findAllWithBudgetByIdIn)) {
 
             // Verify that principal share an organization with the user
             if(userLoggedIn_isNotAdmin && !userService.isMemberOfOrganization(userLoggedInId, entity.getBudget().getOrganization().getId())) {
-                log.error("Impossible to get account {} : principal {} is not in its organization", id, userLoggedInId);
+                log.error("Impossible to get account {} : principal {} is not in its organization", entity.getId(), userLoggedInId);
                 continue;
             }
 
@@ -92,15 +82,13 @@ public class AccountService {
 
         // Verify that principal is the organization of the budget
         Long userLoggedInId = userService.get(principal).getId();
-        Set<OrganizationEntity> principalOrganizations = organizationService.findAllByMembersId(userLoggedInId);
-        if(principalOrganizations.stream().noneMatch(organization -> organization.getId().equals(budget.getOrganization().getId())) && userService.isNotAdmin(userLoggedInId)) {
+        if(!userService.isMemberOfOrganization(userLoggedInId, budget.getOrganization().getId()) && userService.isNotAdmin(userLoggedInId)) {
             log.error("Impossible to get account by budget ID and user ID : the principal is not in the budget organization");
             throw new ForbiddenException();
         }
 
         // Verify that principal is in the same organization as the user requested
-        Set<OrganizationEntity> userOrganizations = organizationService.findAllByMembersId(userId);
-        if(userService.hasNoACommonOrganization(principalOrganizations, userOrganizations) && userService.isNotAdmin(userLoggedInId)) {
+        if(userService.hasNoACommonOrganization(userLoggedInId, userId) && userService.isNotAdmin(userLoggedInId)) {
             log.error("Impossible to get account by budget ID and user ID : user {} is not in the same organization as the principal", userId);
             throw new ForbiddenException();
         }
@@ -112,9 +100,14 @@ public class AccountService {
         return accountRepository.save(account);
     }
 
+    public List<AccountEntity> saveAll(Collection<AccountEntity> accounts) {
+        return accountRepository.saveAll(accounts);
+    }
+
     public void createUserAccountsForUsableBudgets(UserEntity user, Long organizationId) {
         Set<BudgetEntity> budgets = budgetService.findAllByEndDateGreaterThanAndIsDistributedAndOrganizationId(new Date(), true, organizationId);
         log.debug("budgets : {}", budgets.size());
+        List<AccountEntity> accounts = new ArrayList<>();
         budgets.forEach(budget -> {
             AccountEntity account = this.getByBudgetAndUser(budget.getId(), user.getId());
             if (account == null) {
@@ -124,7 +117,8 @@ public class AccountService {
             }
             account.setInitialAmount(budget.getAmountPerMember());
             account.setOwner(user);
-            save(account);
+            accounts.add(account);
         });
+        saveAll(accounts);
     }
 }
@@ -1,11 +1,30 @@
 package fr.lesprojetscagnottes.core.authentication;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Date;
 import java.util.List;
 
 public interface ApiTokenRepository extends JpaRepository<AuthenticationResponseEntity, Long> {
     AuthenticationResponseEntity findByIdAndUserId(long id, Long userId);
     List<AuthenticationResponseEntity> findAllByUserId(long userId);
     List<AuthenticationResponseEntity> findAllByDescription(String description);
-}
\ No newline at end of file
+
+    @Modifying
+    @Query(value = "INSERT INTO api_token_revocations (signature, expiration) VALUES (:_signature, :_expiration) ON CONFLICT DO NOTHING", nativeQuery = true)
+    int insertRevocation(@Param("_signature") String signature, @Param("_expiration") Date expiration);
+
+    // Sent to every node listening once the transaction commits
+    @Query(value = "SELECT count(*) FROM (SELECT pg_notify('api_token_revocation', :_payload)) n", nativeQuery = true)
+    long notifyRevocation(@Param("_payload") String payload);
+
+    @Query(value = "SELECT signature, expiration FROM api_token_revocations WHERE expiration IS NULL OR expiration > now()", nativeQuery = true)
+    List<Object[]> findAllRevocations();
+
+    @Modifying
+    @Query(value = "DELETE FROM api_token_revocations WHERE expiration < now()", nativeQuery = true)
+    int deleteExpiredRevocations();
+}
@@ -1,10 +1,14 @@
 package fr.lesprojetscagnottes.core.authentication;
 
 import fr.lesprojetscagnottes.core.authentication.model.AuthenticationResponseModel;
+import fr.lesprojetscagnottes.core.common.id.TableSequenceGenerator;
 import fr.lesprojetscagnottes.core.user.entity.UserEntity;
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.OptimizableGenerator;
 
 import jakarta.persistence.*;
 import java.io.Serial;
@@ -21,7 +25,11 @@ public class AuthenticationResponseEntity extends AuthenticationResponseModel im
     private static final long serialVersionUID = 1250166508152483573L;
 
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(generator = "pooled-lo")
+    @GenericGenerator(name = "pooled-lo", type = TableSequenceGenerator.class, parameters = {
+            @Parameter(name = OptimizableGenerator.INCREMENT_PARAM, value = "50"),
+            @Parameter(name = OptimizableGenerator.OPT_PARAM, value = "pooled-lo")
+    })
     private Long id;
 
     @Column
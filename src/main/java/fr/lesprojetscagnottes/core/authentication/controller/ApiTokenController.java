@@ -2,6 +2,7 @@ package fr.lesprojetscagnottes.core.authentication.controller;
 
 import fr.lesprojetscagnottes.core.authentication.ApiTokenRepository;
 import fr.lesprojetscagnottes.core.authentication.AuthenticationResponseEntity;
+import fr.lesprojetscagnottes.core.authentication.service.ApiTokenService;
 import fr.lesprojetscagnottes.core.authentication.service.AuthService;
 import fr.lesprojetscagnottes.core.common.strings.StringsCommon;
 import fr.lesprojetscagnottes.core.user.entity.UserEntity;
@@ -48,6 +49,9 @@ public class ApiTokenController {
     @Autowired
     private ApiTokenRepository apiTokenRepository;
 
+    @Autowired
+    private ApiTokenService apiTokenService;
+
     @Autowired
     private AuthService authService;
 
@@ -109,7 +113,7 @@ public class ApiTokenController {
         if(apiToken == null) {
             throw new NotFoundException();
         } else {
-            apiTokenRepository.deleteById(apiToken.getId());
+            apiTokenService.revoke(apiToken);
         }
     }
 }
@@ -4,6 +4,7 @@ import fr.lesprojetscagnottes.core.authentication.model.AuthenticationResponseMo
 import fr.lesprojetscagnottes.core.common.exception.AuthenticationException;
 import fr.lesprojetscagnottes.core.common.exception.BadRequestException;
 import fr.lesprojetscagnottes.core.common.exception.NotFoundException;
+import fr.lesprojetscagnottes.core.common.exception.TooManyRequestsException;
 import fr.lesprojetscagnottes.core.common.security.JwtAuthenticationFilter;
 import fr.lesprojetscagnottes.core.common.security.TokenProvider;
 import fr.lesprojetscagnottes.core.common.strings.AuthenticationConfigConstants;
@@ -22,10 +23,14 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RestController;
@@ -53,7 +58,8 @@ public class AuthenticationController {
     @Operation(summary = "Sign in with email and password", description = "Sign in with email and password", tags = { "Authentication" })
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Successful login", content = @Content(schema = @Schema(implementation = AuthenticationResponseModel.class))),
-            @ApiResponse(responseCode = "401", description = "Invalid credentials or user", content = @Content(schema = @Schema()))
+            @ApiResponse(responseCode = "401", description = "Invalid credentials or user", content = @Content(schema = @Schema())),
+            @ApiResponse(responseCode = "429", description = "Too many logins in progress", content = @Content(schema = @Schema()))
     })
     @RequestMapping(value = "/auth/login", method = RequestMethod.POST, produces = MediaType.APPLICATION_JSON_VALUE)
     public AuthenticationResponseModel login(HttpServletRequest request, HttpServletResponse response) throws AuthenticationException {
@@ -64,6 +70,12 @@ public class AuthenticationController {
         return new AuthenticationResponseModel(token);
     }
 
+    // Written directly so that anonymous clients get the status instead of the error page
+    @ExceptionHandler(TooManyRequestsException.class)
+    public ResponseEntity<Void> tooManyRequests() {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).header(HttpHeaders.RETRY_AFTER, AuthenticationConfigConstants.LOGIN_RETRY_AFTER).build();
+    }
+
     @Operation(summary = "Refresh auth token", description = "Refresh auth token for another 5 hours", tags = { "Authentication" })
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Successful refresh", content = @Content(schema = @Schema(implementation = AuthenticationResponseModel.class))),
@@ -0,0 +1,100 @@
+package fr.lesprojetscagnottes.core.authentication.service;
+
+import fr.lesprojetscagnottes.core.authentication.ApiTokenRepository;
+import fr.lesprojetscagnottes.core.authentication.AuthenticationResponseEntity;
+import fr.lesprojetscagnottes.core.common.notification.NotificationHandler;
+import fr.lesprojetscagnottes.core.common.notification.NotificationListenerTask;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Slf4j
+@Service
+public class ApiTokenService {
+
+    public static final String REVOCATION_CHANNEL = "api_token_revocation";
+
+    private final ApiTokenRepository apiTokenRepository;
+
+    private final NotificationListenerTask notificationListenerTask;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private static final long NEVER = Long.MAX_VALUE;
+
+    // Signatures of revoked tokens which are not expired yet with their expiration, a signature identifies a token
+    private final Map<String, Long> revocations = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ApiTokenService(ApiTokenRepository apiTokenRepository, NotificationListenerTask notificationListenerTask, PlatformTransactionManager transactionManager) {
+        this.apiTokenRepository = apiTokenRepository;
+        this.notificationListenerTask = notificationListenerTask;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    public void init() {
+        loadRevocations();
+        notificationListenerTask.subscribe(REVOCATION_CHANNEL, new NotificationHandler() {
+            @Override
+            public void handle(String payload) {
+                int separator = payload.indexOf(':');
+                String expiration = payload.substring(separator + 1);
+                revocations.put(payload.substring(0, separator), expiration.isEmpty() ? NEVER : Long.parseLong(expiration));
+                pruneRevocations();
+            }
+
+            @Override
+            public void listening() {
+                loadRevocations();
+            }
+        });
+    }
+
+    public boolean isRevoked(String token) {
+        if (revocations.isEmpty()) {
+            return false;
+        }
+        Long expiration = revocations.get(signature(token));
+        return expiration != null && expiration > System.currentTimeMillis();
+    }
+
+    @Transactional
+    public void revoke(AuthenticationResponseEntity apiToken) {
+        String signature = signature(apiToken.getToken());
+        Date expiration = apiToken.getExpiration();
+        apiTokenRepository.insertRevocation(signature, expiration);
+        apiTokenRepository.deleteById(apiToken.getId());
+        apiTokenRepository.notifyRevocation(signature + ":" + (expiration == null ? "" : expiration.getTime()));
+        revocations.put(signature, expiration == null ? NEVER : expiration.getTime());
+        log.info("API token {} revoked", apiToken.getId());
+    }
+
+    private void loadRevocations() {
+        transactionTemplate.executeWithoutResult(status -> {
+            apiTokenRepository.deleteExpiredRevocations();
+            apiTokenRepository.findAllRevocations().forEach(row -> revocations.put((String) row[0], row[1] == null ? NEVER : ((Date) row[1]).getTime()));
+        });
+        pruneRevocations();
+        log.debug("{} API token(s) revoked", revocations.size());
+    }
+
+    // Expired tokens are refused anyway, their revocations are dropped whenever revocations are received or reloaded
+    private void pruneRevocations() {
+        long now = System.currentTimeMillis();
+        revocations.values().removeIf(expiration -> expiration <= now);
+    }
+
+    private static String signature(String token) {
+        return token.substring(token.lastIndexOf('.') + 1);
+    }
+
+}
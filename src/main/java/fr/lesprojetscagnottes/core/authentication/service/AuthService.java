@@ -10,9 +10,11 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Set;
@@ -22,7 +24,9 @@ import java.util.stream.Collectors;
 
 @Slf4j
 @Service(value = "authService")
-public class AuthService implements UserDetailsService {
+public class AuthService implements UserDetailsService, UserDetailsPasswordService {
+
+    private static final Pattern ID_PATTERN = Pattern.compile(".*id='(\\d+)'.*");
 
     @Autowired
     private AuthorityRepository authorityRepository;
@@ -32,33 +36,48 @@ public class AuthService implements UserDetailsService {
 
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        log.debug("looking for user {}", username);
-        UserEntity user = userRepository.findByUsername(username);
-        log.debug("-> by username : {}", user);
-        if (user == null) {
-            user = userRepository.findByEmail(username);
-            log.debug("-> by email : {}", user);
-            if (user == null) {
-                try {
-                    Pattern pattern = Pattern.compile(".*id='(\\d+)'.*");
-                    Matcher matcher = pattern.matcher(username);
-                    if (matcher.find()) {
-                        user = userRepository.findById(Long.parseLong(matcher.group(1))).orElse(null);
-                    }
-                    log.debug("-> by id : {}", user);
-                } catch (NumberFormatException nfe) {
-                    throw new UsernameNotFoundException("User not found");
-                }
-            }
-        }
+        UserEntity user = findUser(username);
         if(user != null) {
             log.debug("user found : {}", user.getEmail());
-            return new UserPrincipal(user.getEmail(), user.getPassword(), getAuthorities(user.getId()));
+            List<GrantedAuthority> authorities = user.getUserAuthorities().stream()
+                    .map(authority -> new SimpleGrantedAuthority(authority.getAuthority()))
+                    .collect(Collectors.toList());
+            return new UserPrincipal(user.getEmail(), user.getPassword(), authorities);
         } else {
             return null;
         }
     }
 
+    // Resolves a user by username, then email, then ID found in a subject like "...id='42'..." with its authorities
+    public UserEntity findUser(String username) {
+        log.debug("looking for user {}", username);
+        Long id = null;
+        Matcher matcher = ID_PATTERN.matcher(username);
+        if (matcher.find()) {
+            try {
+                id = Long.parseLong(matcher.group(1));
+            } catch (NumberFormatException nfe) {
+                throw new UsernameNotFoundException("User not found");
+            }
+        }
+        List<UserEntity> users = userRepository.findAllWithAuthoritiesByLoginOrId(username, id);
+        return users.stream().filter(user -> username.equals(user.getUsername())).findFirst()
+                .or(() -> users.stream().filter(user -> username.equals(user.getEmail())).findFirst())
+                .orElse(users.isEmpty() ? null : users.get(0));
+    }
+
+    @Override
+    @Transactional
+    public UserDetails updatePassword(UserDetails userDetails, String newPassword) {
+        UserEntity user = userRepository.findByEmail(userDetails.getUsername());
+        if(user == null) {
+            log.error("Impossible to update password : user {} not found", userDetails.getUsername());
+            return userDetails;
+        }
+        user.setPassword(newPassword);
+        return new UserPrincipal(user.getEmail(), newPassword, userDetails.getAuthorities());
+    }
+
     public List<GrantedAuthority> getAuthorities(long userId) {
         Set<AuthorityEntity> userAuthorities = authorityRepository.findAllByUsers_Id(userId);
         log.debug("Authorities for user {} :", userId);
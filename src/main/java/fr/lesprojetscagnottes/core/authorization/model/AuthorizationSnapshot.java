@@ -0,0 +1,67 @@
+package fr.lesprojetscagnottes.core.authorization.model;
+
+import fr.lesprojetscagnottes.core.authorization.name.OrganizationAuthorityName;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Permissions of a user : admin flag and, for each organization the user is a member of, a bitmask of its roles.
+ */
+public class AuthorizationSnapshot {
+
+    private final boolean admin;
+
+    private final Map<Long, Integer> organizationRoles;
+
+    private AuthorizationSnapshot(boolean admin, Map<Long, Integer> organizationRoles) {
+        this.admin = admin;
+        this.organizationRoles = Collections.unmodifiableMap(organizationRoles);
+    }
+
+    // Rows are (organization ID, authority name) : ROLE_ADMIN comes without organization, a member without role comes without name
+    public static AuthorizationSnapshot fromRows(Iterable<Object[]> rows) {
+        boolean admin = false;
+        Map<Long, Integer> organizationRoles = new LinkedHashMap<>();
+        for (Object[] row : rows) {
+            if (row[0] == null) {
+                admin = admin || row[1] != null;
+                continue;
+            }
+            long organizationId = ((Number) row[0]).longValue();
+            int role = row[1] == null ? 0 : mask(OrganizationAuthorityName.valueOf(row[1].toString()));
+            organizationRoles.merge(organizationId, role, (a, b) -> a | b);
+        }
+        return new AuthorizationSnapshot(admin, organizationRoles);
+    }
+
+    private static int mask(OrganizationAuthorityName name) {
+        return 1 << name.ordinal();
+    }
+
+    public boolean isAdmin() {
+        return admin;
+    }
+
+    public Set<Long> getOrganizationIds() {
+        return organizationRoles.keySet();
+    }
+
+    public boolean isMemberOf(long organizationId) {
+        return organizationRoles.containsKey(organizationId);
+    }
+
+    public boolean hasOrganizationAuthority(long organizationId, OrganizationAuthorityName name) {
+        return (organizationRoles.getOrDefault(organizationId, 0) & mask(name)) != 0;
+    }
+
+    @Override
+    public String toString() {
+        return "AuthorizationSnapshot{" +
+                "admin=" + admin +
+                ", organizationRoles=" + organizationRoles +
+                '}';
+    }
+}
@@ -14,7 +14,9 @@ import fr.lesprojetscagnottes.core.campaign.repository.CampaignRepository;
 import fr.lesprojetscagnottes.core.common.exception.BadRequestException;
 import fr.lesprojetscagnottes.core.common.exception.ForbiddenException;
 import fr.lesprojetscagnottes.core.common.exception.NotFoundException;
+import fr.lesprojetscagnottes.core.common.pagination.DataCursor;
 import fr.lesprojetscagnottes.core.common.pagination.DataPage;
+import fr.lesprojetscagnottes.core.common.service.BatchLoaderService;
 import fr.lesprojetscagnottes.core.content.repository.ContentRepository;
 import fr.lesprojetscagnottes.core.organization.entity.OrganizationEntity;
 import fr.lesprojetscagnottes.core.organization.repository.OrganizationRepository;
@@ -33,6 +35,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -40,8 +43,7 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
 import java.security.Principal;
-import java.util.LinkedHashSet;
-import java.util.Set;
+import java.util.*;
 
 @Slf4j
 @RestController
@@ -55,6 +57,9 @@ public class BudgetController {
     @Autowired
     private BudgetRepository budgetRepository;
 
+    @Autowired
+    private BatchLoaderService batchLoaderService;
+
     @Autowired
     private ContentRepository contentRepository;
 
@@ -88,21 +93,13 @@ public class BudgetController {
 
         Long userLoggedInId = userService.get(principal).getId();
         boolean userLoggedIn_isNotAdmin = userService.isNotAdmin(userLoggedInId);
-        Set<OrganizationEntity> userLoggedInOrganizations = organizationRepository.findAllByMembers_Id(userLoggedInId);
         Set<BudgetModel> models = new LinkedHashSet<>();
 
-        for(Long id : ids) {
-
-            // Retrieve full referenced objects
-            BudgetEntity budget = budgetRepository.findById(id).orElse(null);
-            if(budget == null) {
-                log.error("Impossible to get budget {} : it doesn't exist", id);
-                continue;
-            }
+        for(BudgetEntity budget : batchLoaderService.load("budget", ids, budgetRepository::findAllById)) {
 
             // Verify that principal share an organization with the user
-            if(!userLoggedInOrganizations.contains(budget.getOrganization()) && userLoggedIn_isNotAdmin) {
-                log.error("Impossible to get budget {} : principal {} is not in its organization", id, userLoggedInId);
+            if(!userService.isMemberOfOrganization(userLoggedInId, budget.getOrganization().getId()) && userLoggedIn_isNotAdmin) {
+                log.error("Impossible to get budget {} : principal {} is not in its organization", budget.getId(), userLoggedInId);
                 continue;
             }
 
@@ -121,8 +118,8 @@ public class BudgetController {
             @ApiResponse(responseCode = "404", description = "Budget not found", content = @Content(schema = @Schema()))
     })
     @PreAuthorize("hasRole('USER')")
-    @RequestMapping(value = "/budget/{id}/accounts", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE, params = {"offset", "limit"})
-    public DataPage<AccountModel> getAccounts(Principal principal, @PathVariable("id") Long id, @RequestParam("offset") int offset, @RequestParam("limit") int limit) {
+    @RequestMapping(value = "/budget/{id}/accounts", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE, params = {"limit"})
+    public DataPage<AccountModel> getAccounts(Principal principal, @PathVariable("id") Long id, @RequestParam(name = "offset", defaultValue = "0") int offset, @RequestParam("limit") int limit, @RequestParam(name = "after", required = false) String after) {
 
         // Fails if budget ID is missing
         if(id <= 0) {
@@ -146,9 +143,13 @@ public class BudgetController {
             throw new NotFoundException();
         }
 
-        // Get and transform donations
-        Page<AccountEntity> entities = accountRepository.findAllByBudgetIdOrderByUser(id, PageRequest.of(offset, limit, Sort.by("u.firstname").ascending().and(Sort.by("u.lastname").ascending())));
-        DataPage<AccountModel> models = new DataPage<>(entities);
+        // Get and transform accounts, starting after the cursor when one is given
+        DataCursor cursor = after != null ? DataCursor.decode(after, "", "", 0L, 0L) : null;
+        Slice<AccountEntity> entities = cursor != null
+                ? accountRepository.findAllByBudgetIdOrderByUserAfter(id, cursor.getString(0), cursor.getString(1), cursor.getLong(2), cursor.getLong(3), PageRequest.of(0, limit))
+                : accountRepository.findAllByBudgetIdOrderByUser(id, PageRequest.of(offset, limit));
+        DataPage<AccountModel> models = new DataPage<>(entities, account -> DataCursor.encode(Objects.toString(account.getOwner().getFirstname(), ""), Objects.toString(account.getOwner().getLastname(), ""),
+                account.getOwner().getId(), account.getId()));
         entities.getContent().forEach(entity -> models.getContent().add(AccountModel.fromEntity(entity)));
         return models;
     }
@@ -292,10 +293,13 @@ public class BudgetController {
             throw new ForbiddenException();
         }
 
-        // Create personal accounts for all members
+        // Create personal accounts for all members, existing ones are read and written back all at once
+        Map<Long, AccountEntity> existingAccounts = new HashMap<>();
+        accountRepository.findAllByBudgetId(budget.getId()).forEach(account -> existingAccounts.put(account.getOwner().getId(), account));
         Set<UserEntity> members = userRepository.findAllByOrganizations_id(organizationId);
+        List<AccountEntity> accounts = new ArrayList<>();
         members.forEach(member -> {
-            AccountEntity account = accountService.getByBudgetAndUser(budget.getId(), member.getId());
+            AccountEntity account = existingAccounts.get(member.getId());
             if(account == null) {
                 account = new AccountEntity();
                 account.setAmount(budget.getAmountPerMember());
@@ -303,8 +307,9 @@ public class BudgetController {
             }
             account.setInitialAmount(budget.getAmountPerMember());
             account.setOwner(member);
-            accountService.save(account);
+            accounts.add(account);
         });
+        accountService.saveAll(accounts);
 
         // Distribute budget
         budget.setIsDistributed(true);
@@ -48,7 +48,8 @@ public class BudgetModel extends AuditEntity<String> {
     @NotNull
     protected Date endDate = new Date();
 
-    @Column(name = "total_donations")
+    // Only written by the donation functions, donations not compacted yet are still counted in slots
+    @Column(name = "total_donations", updatable = false)
     @NotNull
     protected Float totalDonations = 0f;
 
@@ -16,23 +16,14 @@ public interface BudgetRepository extends JpaRepository<BudgetEntity, Long> {
 
     Set<BudgetEntity> findAllByEndDateGreaterThanAndIsDistributedAndOrganizationId(Date enDate, boolean isDistributed, Long organizationId);
 
-    @Query(nativeQuery =true,value = "SELECT * FROM budgets AS b WHERE b.start_date < :today AND b.end_date > :today AND b.is_distributed = true AND b.organization_id = :organization")
+    // Native "select b.*" queries cannot fill the total donations formula, hence JPQL
+    @Query("select b from BudgetEntity b where b.startDate < :today and b.endDate > :today and b.isDistributed = true and b.organization.id = :organization")
     Set<BudgetEntity> findAllUsableBudgetsInOrganization(@Param("today") Date today, @Param("organization") Long organization);
 
-    @Query(nativeQuery = true,
-            value= "select b.* from budgets b " +
-                    "    inner join organizations o on b.organization_id = o.id " +
-                    "    inner join organizations_users on organizations_users.organization_id = o.id " +
-                    "    inner join users u on u.id = organizations_users.user_id " +
-                    "    where u.id = :user_id")
+    @Query("select b from BudgetEntity b join b.organization o join o.members u where u.id = :user_id")
     Set<BudgetEntity> findAllByUser(@Param("user_id") Long userId);
 
-    @Query(nativeQuery = true,
-            value= "select b.* from budgets b " +
-                    "    inner join organizations o on b.organization_id = o.id " +
-                    "    inner join organizations_users on organizations_users.organization_id = o.id " +
-                    "    inner join users u on u.id = organizations_users.user_id " +
-                    "    where u.id = :user_id and b.id = :budget_id")
+    @Query("select b from BudgetEntity b join b.organization o join o.members u where u.id = :user_id and b.id = :budget_id")
     Set<BudgetEntity> findAllByUserAndId(@Param("user_id") Long userId, @Param("budget_id") Long budgetId);
 
 }
\ No newline at end of file
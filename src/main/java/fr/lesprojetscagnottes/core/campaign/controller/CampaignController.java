@@ -1,5 +1,6 @@
 package fr.lesprojetscagnottes.core.campaign.controller;
 
+import fr.lesprojetscagnottes.core.campaign.model.CampaignFundingModel;
 import fr.lesprojetscagnottes.core.campaign.model.CampaignModel;
 import fr.lesprojetscagnottes.core.campaign.service.CampaignService;
 import fr.lesprojetscagnottes.core.common.pagination.DataPage;
@@ -17,6 +18,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.security.Principal;
 import java.util.List;
@@ -47,6 +49,19 @@ public class CampaignController {
         return campaignService.findById(principal, id);
     }
 
+    @Operation(summary = "Stream funding of a campaign", description = "Stream donation total and count deltas of a campaign as Server-Sent Events named funding", tags = { "Campaigns" })
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Stream of funding deltas", content = @Content(mediaType = MediaType.TEXT_EVENT_STREAM_VALUE, schema = @Schema(implementation = CampaignFundingModel.class))),
+            @ApiResponse(responseCode = "400", description = "ID is incorrect", content = @Content(schema = @Schema())),
+            @ApiResponse(responseCode = "403", description = "Principal has not enough privileges", content = @Content(schema = @Schema())),
+            @ApiResponse(responseCode = "404", description = "Campaign not found", content = @Content(schema = @Schema()))
+    })
+    @PreAuthorize("hasRole('USER')")
+    @RequestMapping(value = "/campaign/{id}/stream", method = RequestMethod.GET, produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(Principal principal, @PathVariable("id") Long id) {
+        return campaignService.stream(principal, id);
+    }
+
     @Operation(summary = "Get list of campaigns by a list of IDs", description = "Find a list of campaigns by a list of IDs", tags = { "Campaigns" })
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Return the campaigns", content = @Content(array = @ArraySchema(schema = @Schema(implementation = CampaignModel.class)))),
@@ -68,8 +83,8 @@ public class CampaignController {
     })
     @PreAuthorize("hasRole('USER')")
     @RequestMapping(value = "/campaign/{id}/donations", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
-    public DataPage<DonationModel> getDonations(Principal principal, @PathVariable("id") long campaignId, @RequestParam(name = "offset", defaultValue = "0") int offset, @RequestParam(name = "limit", defaultValue = "10") int limit) {
-        return campaignService.getDonations(principal, campaignId, offset, limit);
+    public DataPage<DonationModel> getDonations(Principal principal, @PathVariable("id") long campaignId, @RequestParam(name = "offset", defaultValue = "0") int offset, @RequestParam(name = "limit", defaultValue = "10") int limit, @RequestParam(name = "after", required = false) String after) {
+        return campaignService.getDonations(principal, campaignId, offset, limit, after);
     }
 
     @Operation(summary = "Create a campaign", description = "Create a campaign", tags = { "Campaigns" })
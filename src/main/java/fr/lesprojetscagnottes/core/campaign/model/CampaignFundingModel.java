@@ -0,0 +1,37 @@
+package fr.lesprojetscagnottes.core.campaign.model;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter(AccessLevel.PUBLIC)
+@Setter(AccessLevel.PUBLIC)
+public class CampaignFundingModel {
+
+    private Long campaignId;
+
+    private Long organizationId;
+
+    private float amount = 0f;
+
+    private int donations = 0;
+
+    public CampaignFundingModel merge(CampaignFundingModel other) {
+        CampaignFundingModel model = new CampaignFundingModel();
+        model.setCampaignId(campaignId);
+        model.setOrganizationId(organizationId);
+        model.setAmount(amount + other.getAmount());
+        model.setDonations(donations + other.getDonations());
+        return model;
+    }
+
+    @Override
+    public String toString() {
+        return "CampaignFundingModel{" +
+                "campaignId=" + campaignId +
+                ", organizationId=" + organizationId +
+                ", amount=" + amount +
+                ", donations=" + donations +
+                '}';
+    }
+}
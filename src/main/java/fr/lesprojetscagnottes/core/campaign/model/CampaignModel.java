@@ -42,7 +42,8 @@ public class CampaignModel extends AuditEntity<String> {
     @NotNull
     protected Date fundingDeadline = new Date();
 
-    @Column(name = "total_donations")
+    // Only written by the donation functions, donations not compacted yet are still counted in slots
+    @Column(name = "total_donations", updatable = false)
     @NotNull
     protected Float totalDonations = 0f;
 
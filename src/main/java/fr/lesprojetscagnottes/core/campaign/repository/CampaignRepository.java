@@ -5,8 +5,12 @@ import fr.lesprojetscagnottes.core.campaign.model.CampaignStatus;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.Date;
+import java.util.List;
 import java.util.Set;
 
 public interface CampaignRepository extends JpaRepository<CampaignEntity, Long> {
@@ -17,4 +21,10 @@ public interface CampaignRepository extends JpaRepository<CampaignEntity, Long>
 
     Set<CampaignEntity> findAllByStatus(CampaignStatus status);
 
+    @Query("select c from CampaignEntity c join fetch c.project where c.id in :ids")
+    List<CampaignEntity> findAllWithProjectByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query(value = "SELECT coalesce(sum(amount), 0) FROM campaign_donation_counters WHERE campaign_id = :campaignId", nativeQuery = true)
+    double sumDonationCountersByCampaignId(@Param("campaignId") long campaignId);
+
 }
\ No newline at end of file
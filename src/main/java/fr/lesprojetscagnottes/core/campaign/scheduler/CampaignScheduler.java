@@ -3,10 +3,7 @@ package fr.lesprojetscagnottes.core.campaign.scheduler;
 import fr.lesprojetscagnottes.core.campaign.entity.CampaignEntity;
 import fr.lesprojetscagnottes.core.campaign.model.CampaignStatus;
 import fr.lesprojetscagnottes.core.campaign.repository.CampaignRepository;
-import fr.lesprojetscagnottes.core.donation.entity.DonationEntity;
-import fr.lesprojetscagnottes.core.donation.queue.DonationOperationType;
 import fr.lesprojetscagnottes.core.donation.repository.DonationRepository;
-import fr.lesprojetscagnottes.core.donation.task.DonationProcessingTask;
 import fr.lesprojetscagnottes.core.notification.model.NotificationName;
 import fr.lesprojetscagnottes.core.notification.service.NotificationService;
 import lombok.extern.slf4j.Slf4j;
@@ -29,8 +26,6 @@ public class CampaignScheduler {
     @Value("${fr.lesprojetscagnottes.web.url}")
     private String webUrl;
 
-    private final DonationProcessingTask donationProcessingTask;
-
     private final CampaignRepository campaignRepository;
 
     private final DonationRepository donationRepository;
@@ -38,11 +33,9 @@ public class CampaignScheduler {
     private final NotificationService notificationService;
 
     @Autowired
-    public CampaignScheduler(DonationProcessingTask donationProcessingTask,
-                             CampaignRepository campaignRepository,
+    public CampaignScheduler(CampaignRepository campaignRepository,
                              DonationRepository donationRepository,
                              NotificationService notificationService) {
-        this.donationProcessingTask = donationProcessingTask;
         this.campaignRepository = campaignRepository;
         this.donationRepository = donationRepository;
         this.notificationService = notificationService;
@@ -55,11 +48,8 @@ public class CampaignScheduler {
         Set<CampaignEntity> campaigns = campaignRepository.findAllByStatusAndFundingDeadlineLessThan(CampaignStatus.IN_PROGRESS, new Date());
         log.info("[processCampaignFundingDeadlines] " + campaigns.size() + " campaign(s) found");
         campaigns.forEach(campaign -> {
-            Set<DonationEntity> donations = donationRepository.findAllByCampaignId(campaign.getId());
-            float totalDonations = 0f;
-            for (DonationEntity donation : donations) {
-                totalDonations += donation.getAmount();
-            }
+            // Donations not compacted yet count as well
+            float totalDonations = campaign.getTotalDonations() + (float) campaignRepository.sumDonationCountersByCampaignId(campaign.getId());
             log.info("[processCampaignFundingDeadlines][" + campaign.getId() + "] Campaign : " + campaign.getId());
             log.info("[processCampaignFundingDeadlines][" + campaign.getId() + "] Donations : " + totalDonations + " € / " + campaign.getDonationsRequired() + " €");
             if (totalDonations >= campaign.getTotalRequired()) {
@@ -68,10 +58,11 @@ public class CampaignScheduler {
             } else {
                 campaign.setStatus(CampaignStatus.FAILED);
                 log.info("[processCampaignFundingDeadlines][" + campaign.getId() + "] Status => FAILED");
-                for (DonationEntity donation : donations) {
-                    donationProcessingTask.insert(donation, DonationOperationType.DELETION);
-                }
-                log.info("[processCampaignFundingDeadlines][" + campaign.getId() + "] Donations deleted");
+
+                // The status is written first so that donations still being processed for this campaign are rejected
+                campaignRepository.saveAndFlush(campaign);
+                int refunded = donationRepository.refundCampaign(campaign.getId());
+                log.info("[processCampaignFundingDeadlines][" + campaign.getId() + "] " + refunded + " donation(s) deleted");
             }
         });
         log.info("[processCampaignFundingDeadlines] End Campaign Funding Deadlines Processing");
@@ -98,12 +89,7 @@ public class CampaignScheduler {
 
     public void notifyCampaignStatus(CampaignEntity campaign, long daysUntilDeadline) {
 
-        Set<DonationEntity> donations = donationRepository.findAllByCampaignId(campaign.getId());
-        float totalDonations = 0f;
-        for (DonationEntity donation : donations) {
-            totalDonations += donation.getAmount();
-        }
-        float donationsMissing = campaign.getTotalDonations() - totalDonations;
+        float donationsMissing = campaign.getTotalRequired() - campaign.getTotalDonations();
         log.info("[notifyCampaignsAlmostFinished][" + campaign.getId() + "] Donations : " + donationsMissing + " €");
 
         Map<String, Object> model = new HashMap<>();
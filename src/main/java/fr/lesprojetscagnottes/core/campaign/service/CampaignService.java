@@ -11,7 +11,9 @@ import fr.lesprojetscagnottes.core.common.date.DateUtils;
 import fr.lesprojetscagnottes.core.common.exception.BadRequestException;
 import fr.lesprojetscagnottes.core.common.exception.ForbiddenException;
 import fr.lesprojetscagnottes.core.common.exception.NotFoundException;
+import fr.lesprojetscagnottes.core.common.pagination.DataCursor;
 import fr.lesprojetscagnottes.core.common.pagination.DataPage;
+import fr.lesprojetscagnottes.core.common.service.BatchLoaderService;
 import fr.lesprojetscagnottes.core.donation.entity.DonationEntity;
 import fr.lesprojetscagnottes.core.donation.model.DonationModel;
 import fr.lesprojetscagnottes.core.donation.service.DonationService;
@@ -24,11 +26,12 @@ import fr.lesprojetscagnottes.core.user.service.UserService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.security.Principal;
 import java.time.LocalDateTime;
@@ -56,6 +59,10 @@ public class CampaignService {
 
     private final CampaignScheduler campaignScheduler;
 
+    private final CampaignStreamService campaignStreamService;
+
+    private final BatchLoaderService batchLoaderService;
+
     @Autowired
     public CampaignService(BudgetService budgetService,
                            DonationService donationService,
@@ -63,7 +70,9 @@ public class CampaignService {
                            ProjectService projectService,
                            UserService userService,
                            CampaignRepository campaignRepository,
-                           CampaignScheduler campaignScheduler) {
+                           CampaignScheduler campaignScheduler,
+                           CampaignStreamService campaignStreamService,
+                           BatchLoaderService batchLoaderService) {
         this.budgetService = budgetService;
         this.donationService = donationService;
         this.notificationService = notificationService;
@@ -71,6 +80,8 @@ public class CampaignService {
         this.userService = userService;
         this.campaignRepository = campaignRepository;
         this.campaignScheduler = campaignScheduler;
+        this.campaignStreamService = campaignStreamService;
+        this.batchLoaderService = batchLoaderService;
     }
 
     public CampaignModel findById(Principal principal, Long id) {
@@ -98,23 +109,22 @@ public class CampaignService {
         return CampaignModel.fromEntity(entity);
     }
 
+    public SseEmitter stream(Principal principal, Long id) {
+        // Verify that campaign exists and principal can see it
+        findById(principal, id);
+        return campaignStreamService.subscribeCampaign(id);
+    }
+
     public List<CampaignModel> getByIds(Principal principal, Set<Long> ids) {
         Long userLoggedInId = userService.get(principal).getId();
         boolean userLoggedIn_isNotAdmin = userService.isNotAdmin(userLoggedInId);
         List<CampaignModel> models = new ArrayList<>();
 
-        for (Long id : ids) {
-
-            // Retrieve full referenced objects
-            CampaignEntity entity = campaignRepository.findById(id).orElse(null);
-            if (entity == null) {
-                log.error("Impossible to get campaign {} : it doesn't exist", id);
-                continue;
-            }
+        for (CampaignEntity entity : batchLoaderService.load("campaign", ids, campaignRepository::findAllWithProjectByIdIn)) {
 
             // Verify that principal is in campaign's project organization
             if (userLoggedIn_isNotAdmin && !userService.isMemberOfOrganization(userLoggedInId, entity.getProject().getOrganization().getId())) {
-                log.error("Impossible to get campaign {} : principal {} is not in organizations of project's campaign", id, userLoggedInId);
+                log.error("Impossible to get campaign {} : principal {} is not in organizations of project's campaign", entity.getId(), userLoggedInId);
                 continue;
             }
 
@@ -269,7 +279,7 @@ public class CampaignService {
         return CampaignModel.fromEntity(campaignRepository.save(campaign));
     }
 
-    public DataPage<DonationModel> getDonations(Principal principal, long campaignId, int offset, int limit) {
+    public DataPage<DonationModel> getDonations(Principal principal, long campaignId, int offset, int limit, String after) {
         // Fails if campaign ID is missing
         if (campaignId <= 0) {
             log.error("Impossible to get donations by campaign ID : Campaign ID is incorrect");
@@ -293,8 +303,10 @@ public class CampaignService {
             throw new ForbiddenException();
         }
 
-        // Get and transform donations
-        Page<DonationEntity> entities = donationService.findByCampaign_idOrderByIdAsc(campaignId, PageRequest.of(offset, limit, Sort.by("id")));
+        // Get and transform donations, starting after the cursor when one is given
+        Slice<DonationEntity> entities = after != null
+                ? donationService.findAllByCampaignIdAfter(campaignId, DataCursor.decode(after, 0L).getLong(0), limit)
+                : donationService.findByCampaign_idOrderByIdAsc(campaignId, PageRequest.of(offset, limit, Sort.by("id")));
         DataPage<DonationModel> models = new DataPage<>(entities);
         entities.getContent().forEach(entity -> models.getContent().add(DonationModel.fromEntity(entity)));
         return models;
@@ -0,0 +1,138 @@
+package fr.lesprojetscagnottes.core.campaign.service;
+
+import com.google.gson.Gson;
+import fr.lesprojetscagnottes.core.campaign.model.CampaignFundingModel;
+import fr.lesprojetscagnottes.core.common.notification.NotificationListenerTask;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+@Slf4j
+@Service
+public class CampaignStreamService {
+
+    // Channel notified by donation processing and campaign refunds, see DonationOperationRepository.notifyFundings and refund_campaign
+    public static final String FUNDING_CHANNEL = "campaign_funding";
+
+    private static final String FUNDING_EVENT = "funding";
+
+    @Value("${fr.lesprojetscagnottes.core.campaign.stream.interval}")
+    private long interval;
+
+    @Value("${fr.lesprojetscagnottes.core.campaign.stream.timeout}")
+    private long timeout;
+
+    @Autowired
+    private Gson gson;
+
+    @Autowired
+    private NotificationListenerTask notificationListenerTask;
+
+    private final Map<Long, Set<SseEmitter>> campaignEmitters = new ConcurrentHashMap<>();
+
+    private final Map<Long, Set<SseEmitter>> organizationEmitters = new ConcurrentHashMap<>();
+
+    private final Map<Long, CampaignFundingModel> pendingFundings = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService executor;
+
+    @PostConstruct
+    public void start() {
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "CampaignStreamService");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::flush, interval, interval, TimeUnit.MILLISECONDS);
+        notificationListenerTask.subscribe(FUNDING_CHANNEL, payload -> publish(gson.fromJson(payload, CampaignFundingModel.class)));
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+        campaignEmitters.values().forEach(emitters -> emitters.forEach(this::complete));
+        organizationEmitters.values().forEach(emitters -> emitters.forEach(this::complete));
+    }
+
+    public SseEmitter subscribeCampaign(long campaignId) {
+        return subscribe(campaignEmitters, campaignId);
+    }
+
+    public SseEmitter subscribeOrganization(long organizationId) {
+        return subscribe(organizationEmitters, organizationId);
+    }
+
+    public void publish(CampaignFundingModel funding) {
+        if (!campaignEmitters.containsKey(funding.getCampaignId())
+                && (funding.getOrganizationId() == null || !organizationEmitters.containsKey(funding.getOrganizationId()))) {
+            return;
+        }
+        pendingFundings.merge(funding.getCampaignId(), funding, CampaignFundingModel::merge);
+    }
+
+    private SseEmitter subscribe(Map<Long, Set<SseEmitter>> emitters, long id) {
+        SseEmitter emitter = new SseEmitter(timeout);
+        emitters.computeIfAbsent(id, key -> ConcurrentHashMap.newKeySet()).add(emitter);
+        Runnable unsubscribe = () -> emitters.computeIfPresent(id, (key, subscribers) -> {
+            subscribers.remove(emitter);
+            return subscribers.isEmpty() ? null : subscribers;
+        });
+        emitter.onCompletion(unsubscribe);
+        emitter.onTimeout(unsubscribe);
+        emitter.onError(e -> unsubscribe.run());
+        return emitter;
+    }
+
+    // Fundings received between two flushes are sent as a single event per campaign
+    private void flush() {
+        try {
+            for (Long campaignId : pendingFundings.keySet()) {
+                CampaignFundingModel funding = pendingFundings.remove(campaignId);
+                if (funding == null) {
+                    continue;
+                }
+                send(campaignEmitters.get(campaignId), funding);
+                if (funding.getOrganizationId() != null) {
+                    send(organizationEmitters.get(funding.getOrganizationId()), funding);
+                }
+            }
+        } catch (Exception e) {
+            log.error("An error occured while streaming campaign fundings : {}", e.getMessage());
+        }
+    }
+
+    private void complete(SseEmitter emitter) {
+        try {
+            emitter.complete();
+        } catch (Exception e) {
+            log.debug("Campaign funding subscriber already closed : {}", e.getMessage());
+        }
+    }
+
+    private void send(Set<SseEmitter> emitters, CampaignFundingModel funding) {
+        if (emitters == null) {
+            return;
+        }
+        for (SseEmitter emitter : emitters) {
+            try {
+                emitter.send(SseEmitter.event().name(FUNDING_EVENT).data(funding));
+            } catch (IOException | IllegalStateException e) {
+                log.debug("Campaign funding subscriber dropped : {}", e.getMessage());
+                emitter.completeWithError(e);
+            }
+        }
+    }
+
+}
@@ -1,12 +1,15 @@
 package fr.lesprojetscagnottes.core.common;
 
+import fr.lesprojetscagnottes.core.common.id.TableSequenceGenerator;
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.experimental.SuperBuilder;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.OptimizableGenerator;
 
 import jakarta.persistence.GeneratedValue;
-import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.MappedSuperclass;
 
@@ -16,12 +19,21 @@ import jakarta.persistence.MappedSuperclass;
 @SuperBuilder
 public class GenericModel {
 
+    // Every entity sequence increments by 50, ids of a block are handed out from its low value
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(generator = "pooled-lo")
+    @GenericGenerator(name = "pooled-lo", type = TableSequenceGenerator.class, parameters = {
+            @Parameter(name = OptimizableGenerator.INCREMENT_PARAM, value = "50"),
+            @Parameter(name = OptimizableGenerator.OPT_PARAM, value = "pooled-lo")
+    })
     protected Long id = 0L;
 
     public GenericModel() {}
 
+    public GenericModel(Long id) {
+        this.id = id != null ? id : 0L;
+    }
+
     public GenericModel(GenericModel model) {
         if(model != null) {
             this.id = model.getId();
@@ -0,0 +1,62 @@
+package fr.lesprojetscagnottes.core.common.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Bounded in-memory cache : least recently used entries are evicted first and entries expire after a time to live.
+ */
+public class ExpiringCache<K, V> {
+
+    private final long ttl;
+
+    private final Map<K, Entry<V>> entries;
+
+    public ExpiringCache(int maxSize, long ttl) {
+        this.ttl = ttl;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    public synchronized V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAt() < System.currentTimeMillis()) {
+            entries.remove(key);
+            return null;
+        }
+        return entry.value();
+    }
+
+    public void put(K key, V value) {
+        put(key, value, ttl);
+    }
+
+    // Entries never live longer than the time to live of the cache
+    public synchronized void put(K key, V value, long ttl) {
+        entries.put(key, new Entry<>(value, System.currentTimeMillis() + Math.min(ttl, this.ttl)));
+    }
+
+    public synchronized void remove(K key) {
+        entries.remove(key);
+    }
+
+    public synchronized void removeValues(Predicate<V> predicate) {
+        entries.values().removeIf(entry -> predicate.test(entry.value()));
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    private record Entry<V>(V value, long expiresAt) {
+    }
+
+}
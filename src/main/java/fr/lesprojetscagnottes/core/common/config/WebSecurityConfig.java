@@ -1,7 +1,10 @@
 package fr.lesprojetscagnottes.core.common.config;
 
+import fr.lesprojetscagnottes.core.authentication.service.ApiTokenService;
 import fr.lesprojetscagnottes.core.common.security.*;
+import jakarta.servlet.DispatcherType;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -32,6 +35,15 @@ public class WebSecurityConfig {
 
     private CustomAuthenticationManager authenticationManager;
 
+    @Autowired
+    private ApiTokenService apiTokenService;
+
+    @Value("${fr.lesprojetscagnottes.core.token.cache.size}")
+    private int tokenCacheSize;
+
+    @Value("${fr.lesprojetscagnottes.core.token.cache.ttl}")
+    private long tokenCacheTtl;
+
     @Autowired
     public void configureGlobal(AuthenticationManagerBuilder auth) throws Exception {
         auth.userDetailsService(jwtUserDetailsService).passwordEncoder(passwordEncoder);
@@ -48,6 +60,7 @@ public class WebSecurityConfig {
                 .csrf(AbstractHttpConfigurer::disable)
                 .addFilterBefore(corsFilter(), SessionManagementFilter.class)
                 .authorizeHttpRequests(authz -> authz
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC, DispatcherType.ERROR).permitAll()
                         .requestMatchers(HttpMethod.OPTIONS,"/**").permitAll()
                         .requestMatchers(HttpMethod.GET,
                                 "/",
@@ -61,7 +74,7 @@ public class WebSecurityConfig {
                         .anyRequest().authenticated()
                 )
                 .addFilter(new JwtAuthenticationFilter(authenticationManager))
-                .addFilter(new JwtAuthorizationFilter(authenticationManager))
+                .addFilter(new JwtAuthorizationFilter(authenticationManager, apiTokenService, tokenCacheSize, tokenCacheTtl))
                 .sessionManagement(sess -> sess.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .build();
 
@@ -0,0 +1,11 @@
+package fr.lesprojetscagnottes.core.common.notification;
+
+public interface NotificationHandler {
+
+    void handle(String payload);
+
+    // Called each time the channel is listened again, notifications sent in the meantime are lost
+    default void listening() {
+    }
+
+}
@@ -0,0 +1,110 @@
+package fr.lesprojetscagnottes.core.common.notification;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Slf4j
+@Component
+public class NotificationListenerTask {
+
+    private static final int NOTIFICATIONS_TIMEOUT = 1000;
+
+    private static final long RECONNECT_DELAY = 5000;
+
+    @Value("${spring.datasource.url}")
+    private String url;
+
+    @Value("${spring.datasource.username}")
+    private String username;
+
+    @Value("${spring.datasource.password}")
+    private String password;
+
+    private final Map<String, NotificationHandler> handlers = new ConcurrentHashMap<>();
+
+    private Thread thread;
+
+    private volatile boolean running = false;
+
+    // Channels must be subscribed before the task starts
+    public void subscribe(String channel, NotificationHandler handler) {
+        handlers.put(channel, handler);
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        thread = new Thread(this::listen, "NotificationListenerTask");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        running = false;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    private void listen() {
+        while (running) {
+            // A dedicated connection listens for as long as the task runs, a pooled one would be taken from the pool forever
+            try (Connection connection = DriverManager.getConnection(url, username, password)) {
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                try (Statement statement = connection.createStatement()) {
+                    for (String channel : handlers.keySet()) {
+                        statement.execute("LISTEN " + channel);
+                    }
+                }
+                handlers.values().forEach(NotificationHandler::listening);
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(NOTIFICATIONS_TIMEOUT);
+                    if (notifications == null) {
+                        continue;
+                    }
+                    for (PGNotification notification : notifications) {
+                        handle(notification);
+                    }
+                }
+            } catch (Exception e) {
+                if (!running) {
+                    return;
+                }
+                log.error("An error occured while listening to notifications : {}", e.getMessage());
+                try {
+                    Thread.sleep(RECONNECT_DELAY);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    // A failing handler must neither drop the notifications of other channels nor the connection
+    private void handle(PGNotification notification) {
+        NotificationHandler handler = handlers.get(notification.getName());
+        if (handler == null) {
+            return;
+        }
+        try {
+            handler.handle(notification.getParameter());
+        } catch (Exception e) {
+            log.error("An error occured while handling notification on channel {} : {}", notification.getName(), e.getMessage());
+        }
+    }
+
+}
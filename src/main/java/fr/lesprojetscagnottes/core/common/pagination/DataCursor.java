@@ -0,0 +1,79 @@
+package fr.lesprojetscagnottes.core.common.pagination;
+
+import fr.lesprojetscagnottes.core.common.exception.BadRequestException;
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Date;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Cursors carry the sort keys of the last returned row, so that a listing goes on even if that row is removed meanwhile
+@Slf4j
+public class DataCursor {
+
+    private static final String SEPARATOR = ".";
+
+    private final String cursor;
+    private final String[] keys;
+
+    private DataCursor(String cursor, String[] keys) {
+        this.cursor = cursor;
+        this.keys = keys;
+    }
+
+    // Dates keep their fractional seconds, a truncated date would skip the rows created in the same millisecond
+    public static String encode(Object... keys) {
+        return Arrays.stream(keys)
+                .map(key -> key instanceof Date date ? date.toInstant().toString() : String.valueOf(key))
+                .map(key -> Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8)))
+                .collect(Collectors.joining(SEPARATOR));
+    }
+
+    // Without cursor, the first page starts after the given keys
+    public static DataCursor decode(String cursor, Object... firstKeys) {
+        if (cursor == null || cursor.isBlank()) {
+            return decode(encode(firstKeys), firstKeys);
+        }
+        String[] keys = cursor.split("\\" + SEPARATOR, -1);
+        if (keys.length != firstKeys.length) {
+            log.error("Impossible to read cursor {} : {} keys expected", cursor, firstKeys.length);
+            throw new BadRequestException();
+        }
+        try {
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = new String(Base64.getUrlDecoder().decode(keys[i]), StandardCharsets.UTF_8);
+            }
+        } catch (IllegalArgumentException e) {
+            log.error("Impossible to read cursor {} : {}", cursor, e.getMessage());
+            throw new BadRequestException();
+        }
+        return new DataCursor(cursor, keys);
+    }
+
+    public String getString(int index) {
+        return keys[index];
+    }
+
+    public long getLong(int index) {
+        return get(index, Long::parseLong);
+    }
+
+    public Date getDate(int index) {
+        return get(index, key -> Timestamp.from(Instant.parse(key)));
+    }
+
+    private <T> T get(int index, Function<String, T> parser) {
+        try {
+            return parser.apply(keys[index]);
+        } catch (RuntimeException e) {
+            log.error("Impossible to read cursor {} : {}", cursor, e.getMessage());
+            throw new BadRequestException();
+        }
+    }
+
+}
@@ -5,9 +5,11 @@ import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Function;
 
 @Getter(AccessLevel.PUBLIC)
 @Setter(AccessLevel.PUBLIC)
@@ -20,12 +22,22 @@ public class DataPage<T> {
     private int size;
     private int numberOfElements;
     private DataSort sort;
+    private String nextCursor;
 
     public DataPage() {}
 
-    public DataPage(Page<? extends GenericModel> entities) {
-        totalPages = entities.getTotalPages();
-        totalElements = entities.getTotalElements();
+    public <E extends GenericModel> DataPage(Slice<E> entities) {
+        this(entities, entity -> DataCursor.encode(entity.getId()));
+    }
+
+    // Keyset slices skip the count, their next page is reached through the cursor of their last row instead of the page number
+    public <E> DataPage(Slice<E> entities, Function<? super E, String> cursor) {
+        if (entities instanceof Page<E> page) {
+            totalPages = page.getTotalPages();
+            totalElements = page.getTotalElements();
+        } else if (entities.hasNext()) {
+            nextCursor = cursor.apply(entities.getContent().get(entities.getNumberOfElements() - 1));
+        }
         number = entities.getNumber();
         size = entities.getSize();
         numberOfElements = entities.getNumberOfElements();
@@ -1,36 +1,110 @@
 package fr.lesprojetscagnottes.core.common.security;
 
+import fr.lesprojetscagnottes.core.common.exception.TooManyRequestsException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.context.annotation.Bean;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.AuthenticationServiceException;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Component;
 
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Slf4j
 @Component
 public class CustomAuthenticationManager implements AuthenticationManager {
 
+    @Value("${fr.lesprojetscagnottes.core.password.queue.size}")
+    private int queueSize;
+
+    @Value("${fr.lesprojetscagnottes.core.password.timeout}")
+    private long timeout;
+
     @Autowired
     private UserDetailsService userDetailsService;
 
-    @Bean
-    protected PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    @Autowired
+    private UserDetailsPasswordService userDetailsPasswordService;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    public void init() {
+        int threads = Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadNumber = new AtomicInteger(0);
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueSize), runnable -> {
+            Thread thread = new Thread(runnable, "PasswordEncoder-" + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
     }
 
     @Override
     public Authentication authenticate(Authentication authentication) throws AuthenticationException {
         final UserDetails userDetail = userDetailsService.loadUserByUsername(authentication.getName());
-        if (!passwordEncoder().matches(authentication.getCredentials().toString(), userDetail.getPassword())) {
+        final String password = authentication.getCredentials().toString();
+        if (!encode(() -> passwordEncoder.matches(password, userDetail.getPassword()))) {
             throw new BadCredentialsException("Wrong password");
         }
+        if (passwordEncoder.upgradeEncoding(userDetail.getPassword())) {
+            rehash(userDetail, password);
+        }
         return new UsernamePasswordAuthenticationToken(userDetail.getUsername(), userDetail.getPassword(), userDetail.getAuthorities());
     }
 
+    // Bcrypt is CPU bound : it runs on one thread per core and logins are refused once the queue is full or the check outlasts the timeout
+    private <T> T encode(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            log.warn("Login refused : {} password(s) are already waiting to be checked", executor.getQueue().size());
+            throw new TooManyRequestsException();
+        }
+        try {
+            return future.get(timeout, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            log.warn("Login refused : password not checked within {} ms", timeout);
+            throw new TooManyRequestsException();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new AuthenticationServiceException("Password check interrupted", e);
+        } catch (ExecutionException e) {
+            throw new AuthenticationServiceException("Password check failed", e.getCause());
+        }
+    }
+
+    // Rehashing is done after the response, it is skipped when logins are queued and will be retried on next login
+    private void rehash(UserDetails userDetail, String password) {
+        try {
+            executor.execute(() -> {
+                log.info("Upgrading password encoding of user {}", userDetail.getUsername());
+                userDetailsPasswordService.updatePassword(userDetail, passwordEncoder.encode(password));
+            });
+        } catch (RejectedExecutionException e) {
+            log.debug("Password encoding upgrade of user {} postponed", userDetail.getUsername());
+        }
+    }
+
 }
@@ -3,13 +3,18 @@ package fr.lesprojetscagnottes.core.common.security;
 import com.auth0.jwt.JWT;
 import com.auth0.jwt.algorithms.Algorithm;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import fr.lesprojetscagnottes.core.common.exception.TooManyRequestsException;
 import fr.lesprojetscagnottes.core.common.strings.AuthenticationConfigConstants;
 import fr.lesprojetscagnottes.core.user.entity.UserEntity;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
@@ -26,15 +31,28 @@ import java.util.Date;
 @Component
 public class JwtAuthenticationFilter extends UsernamePasswordAuthenticationFilter {
 
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
     public JwtAuthenticationFilter(AuthenticationManager authManager) {
         super(authManager);
     }
 
+    // Refused logins are answered here, the exception would otherwise leave the filter chain as an internal error
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException, ServletException {
+        try {
+            super.doFilter(request, response, chain);
+        } catch (TooManyRequestsException e) {
+            HttpServletResponse httpResponse = (HttpServletResponse) response;
+            httpResponse.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            httpResponse.setHeader(HttpHeaders.RETRY_AFTER, AuthenticationConfigConstants.LOGIN_RETRY_AFTER);
+        }
+    }
+
     @Override
     public Authentication attemptAuthentication(HttpServletRequest request, HttpServletResponse response) throws AuthenticationException {
         try {
-            UserEntity creds = new ObjectMapper()
-                    .readValue(request.getInputStream(), UserEntity.class);
+            UserEntity creds = OBJECT_MAPPER.readValue(request.getInputStream(), UserEntity.class);
 
             log.debug("authenticate username : {}", creds.getEmail());
 
@@ -1,9 +1,12 @@
 package fr.lesprojetscagnottes.core.common.security;
 
 import com.auth0.jwt.JWT;
+import com.auth0.jwt.JWTVerifier;
 import com.auth0.jwt.algorithms.Algorithm;
 import com.auth0.jwt.exceptions.TokenExpiredException;
 import com.auth0.jwt.interfaces.DecodedJWT;
+import fr.lesprojetscagnottes.core.authentication.service.ApiTokenService;
+import fr.lesprojetscagnottes.core.common.cache.ExpiringCache;
 import fr.lesprojetscagnottes.core.common.strings.AuthenticationConfigConstants;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
@@ -18,7 +21,11 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.web.authentication.www.BasicAuthenticationFilter;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
+import java.util.Base64;
 import java.util.Collection;
 import java.util.Iterator;
 
@@ -27,19 +34,30 @@ import static fr.lesprojetscagnottes.core.common.strings.AuthenticationConfigCon
 @Slf4j
 public class JwtAuthorizationFilter extends BasicAuthenticationFilter {
 
-    public JwtAuthorizationFilter(AuthenticationManager authenticationManager) {
+    private static final JWTVerifier VERIFIER = JWT.require(Algorithm.HMAC512(AuthenticationConfigConstants.SECRET.getBytes())).build();
+
+    // Tokens already verified until they expire, keyed by their digest so that bearer tokens are not kept in memory
+    private final ExpiringCache<String, UsernamePasswordAuthenticationToken> authentications;
+
+    private final ApiTokenService apiTokenService;
+
+    public JwtAuthorizationFilter(AuthenticationManager authenticationManager, ApiTokenService apiTokenService, int cacheSize, long cacheTtl) {
         super(authenticationManager);
+        this.apiTokenService = apiTokenService;
+        this.authentications = new ExpiringCache<>(cacheSize, cacheTtl);
     }
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain) throws IOException, ServletException {
         String header = request.getHeader(AuthenticationConfigConstants.HEADER_STRING);
 
-        log.debug(request.getMethod());
-        log.debug(request.getRequestURI());
-        for (Iterator<String> iter = request.getHeaderNames().asIterator(); iter.hasNext(); ) {
-            String headerName = iter.next();
-            log.debug(headerName + " : " + request.getHeader(headerName));
+        if (log.isDebugEnabled()) {
+            log.debug(request.getMethod());
+            log.debug(request.getRequestURI());
+            for (Iterator<String> iter = request.getHeaderNames().asIterator(); iter.hasNext(); ) {
+                String headerName = iter.next();
+                log.debug(headerName + " : " + request.getHeader(headerName));
+            }
         }
 
         if (header == null || !header.startsWith(AuthenticationConfigConstants.TOKEN_PREFIX)) {
@@ -47,6 +65,12 @@ public class JwtAuthorizationFilter extends BasicAuthenticationFilter {
             return;
         }
 
+        if (apiTokenService.isRevoked(header)) {
+            log.debug("Revoked token used on {}", request.getRequestURI());
+            response.sendError(HttpServletResponse.SC_UNAUTHORIZED);
+            return;
+        }
+
         try {
             UsernamePasswordAuthenticationToken authentication = getAuthentication(request);
             SecurityContextHolder.getContext().setAuthentication(authentication);
@@ -59,11 +83,14 @@ public class JwtAuthorizationFilter extends BasicAuthenticationFilter {
     private UsernamePasswordAuthenticationToken getAuthentication(HttpServletRequest request) {
         String token = request.getHeader(AuthenticationConfigConstants.HEADER_STRING);
         if (token != null) {
+            String digest = digest(token);
+            UsernamePasswordAuthenticationToken authentication = authentications.get(digest);
+            if (authentication != null) {
+                return authentication;
+            }
 
             // parse the token.
-            DecodedJWT verify = JWT.require(Algorithm.HMAC512(AuthenticationConfigConstants.SECRET.getBytes()))
-                    .build()
-                    .verify(token.replace(AuthenticationConfigConstants.TOKEN_PREFIX, ""));
+            DecodedJWT verify = VERIFIER.verify(token.replace(AuthenticationConfigConstants.TOKEN_PREFIX, ""));
 
             String username = verify.getSubject();
             String role = verify.getClaim(AUTHORITIES_KEY).asString();
@@ -72,13 +99,25 @@ public class JwtAuthorizationFilter extends BasicAuthenticationFilter {
             log.debug("role : {}", role);
 
             if (username != null) {
-                return new UsernamePasswordAuthenticationToken(username, null, getAuthorities(role));
+                authentication = new UsernamePasswordAuthenticationToken(username, null, getAuthorities(role));
+                if (verify.getExpiresAt() != null) {
+                    authentications.put(digest, authentication, verify.getExpiresAt().getTime() - System.currentTimeMillis());
+                }
+                return authentication;
             }
             return null;
         }
         return null;
     }
 
+    private static String digest(String token) {
+        try {
+            return Base64.getEncoder().encodeToString(MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
     private Collection<? extends GrantedAuthority> getAuthorities(String role) {
         log.debug("get authorities from : {}", role);
         return Arrays.asList(new SimpleGrantedAuthority(role));
@@ -0,0 +1,44 @@
+package fr.lesprojetscagnottes.core.common.service;
+
+import fr.lesprojetscagnottes.core.common.GenericModel;
+import fr.lesprojetscagnottes.core.common.exception.BadRequestException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.function.Function;
+
+@Slf4j
+@Service
+public class BatchLoaderService {
+
+    @Value("${fr.lesprojetscagnottes.core.batch.size}")
+    private int maxBatchSize;
+
+    // Loads entities with a single query and returns them in the order of IDs, unknown IDs are skipped
+    public <E extends GenericModel> List<E> load(String name, Collection<Long> ids, Function<Collection<Long>, ? extends Iterable<E>> finder) {
+        if (ids.size() > maxBatchSize) {
+            log.error("Impossible to get {}s : {} IDs requested, {} at most", name, ids.size(), maxBatchSize);
+            throw new BadRequestException();
+        }
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Map<Long, E> entitiesById = new HashMap<>();
+        finder.apply(ids).forEach(entity -> entitiesById.put(entity.getId(), entity));
+
+        List<E> entities = new ArrayList<>(entitiesById.size());
+        for (Long id : ids) {
+            E entity = entitiesById.get(id);
+            if (entity == null) {
+                log.error("Impossible to get {} {} : it doesn't exist", name, id);
+                continue;
+            }
+            entities.add(entity);
+        }
+        return entities;
+    }
+
+}
@@ -6,4 +6,5 @@ public class AuthenticationConfigConstants {
     public static final String TOKEN_PREFIX = "Bearer ";
     public static final String HEADER_STRING = "Authorization";
     public static final String AUTHORITIES_KEY = "scopes";
+    public static final String LOGIN_RETRY_AFTER = "1";
 }
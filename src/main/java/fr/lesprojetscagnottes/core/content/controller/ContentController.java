@@ -5,6 +5,7 @@ import fr.lesprojetscagnottes.core.budget.repository.BudgetRepository;
 import fr.lesprojetscagnottes.core.common.exception.BadRequestException;
 import fr.lesprojetscagnottes.core.common.exception.ForbiddenException;
 import fr.lesprojetscagnottes.core.common.exception.NotFoundException;
+import fr.lesprojetscagnottes.core.common.service.BatchLoaderService;
 import fr.lesprojetscagnottes.core.content.entity.ContentEntity;
 import fr.lesprojetscagnottes.core.content.model.ContentModel;
 import fr.lesprojetscagnottes.core.content.repository.ContentRepository;
@@ -40,6 +41,9 @@ public class ContentController {
     @Autowired
     private ContentRepository contentRepository;
 
+    @Autowired
+    private BatchLoaderService batchLoaderService;
+
     @Autowired
     private OrganizationRepository organizationRepository;
 
@@ -66,8 +70,7 @@ public class ContentController {
         // Else => all organizations
         Long userLoggedInId = userService.get(principal).getId();
         Set<OrganizationEntity> organizationsContent = organizationRepository.findAllByContents_Id(id);
-        Set<OrganizationEntity> organizationsPrincipal = organizationRepository.findAllByMembers_Id(userLoggedInId);
-        if(userService.hasNoACommonOrganization(organizationsPrincipal, organizationsContent) && userService.isNotAdmin(userLoggedInId)) {
+        if(organizationsContent.stream().noneMatch(organization -> userService.isMemberOfOrganization(userLoggedInId, organization.getId())) && userService.isNotAdmin(userLoggedInId)) {
             log.error("Impossible to get content by ID : principal has not enough privileges");
             throw new ForbiddenException();
         }
@@ -95,22 +98,13 @@ public class ContentController {
 
         Long userLoggedInId = userService.get(principal).getId();
         boolean userLoggedIn_isNotAdmin = userService.isNotAdmin(userLoggedInId);
-        Set<OrganizationEntity> userLoggedInOrganizations = organizationRepository.findAllByMembers_Id(userLoggedInId);
         Set<ContentModel> models = new LinkedHashSet<>();
 
-        for(Long id : ids) {
-
-            // Retrieve full referenced objects
-            ContentEntity content = contentRepository.findById(id).orElse(null);
-            if(content == null) {
-                log.error("Impossible to get content {} : it doesn't exist", id);
-                continue;
-            }
+        for(ContentEntity content : batchLoaderService.load("content", ids, contentRepository::findAllById)) {
 
             // Verify that principal share an organization with the user
-            Set<OrganizationEntity> contentOrganizations = organizationRepository.findAllByContents_Id(id);
-            if(userService.hasNoACommonOrganization(userLoggedInOrganizations, contentOrganizations) && userLoggedIn_isNotAdmin) {
-                log.error("Impossible to get content {} : principal {} is not in its organization", id, userLoggedInId);
+            if((content.getOrganization() == null || !userService.isMemberOfOrganization(userLoggedInId, content.getOrganization().getId())) && userLoggedIn_isNotAdmin) {
+                log.error("Impossible to get content {} : principal {} is not in its organization", content.getId(), userLoggedInId);
                 continue;
             }
 
@@ -11,6 +11,8 @@ import jakarta.persistence.Column;
 import jakarta.persistence.MappedSuperclass;
 import jakarta.persistence.Transient;
 
+import java.util.Date;
+
 @Getter(AccessLevel.PUBLIC)
 @Setter(AccessLevel.PUBLIC)
 @MappedSuperclass
@@ -25,6 +27,19 @@ public class ContentModel extends AuditEntity<String> {
     @Transient
     private GenericModel organization = new GenericModel();
 
+    public ContentModel() {}
+
+    // Summary of a content, without its value
+    public ContentModel(Long id, Date createdAt, String createdBy, Date updatedAt, String updatedBy, String name, Long organizationId) {
+        setId(id);
+        setCreatedAt(createdAt);
+        setCreatedBy(createdBy);
+        setUpdatedAt(updatedAt);
+        setUpdatedBy(updatedBy);
+        this.name = name;
+        this.organization = new GenericModel(organizationId);
+    }
+
     public static ContentModel fromEntity(ContentEntity entity) {
         ContentModel model = new ContentModel();
         model.setCreatedAt(entity.getCreatedAt());
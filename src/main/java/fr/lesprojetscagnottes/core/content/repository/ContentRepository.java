@@ -1,14 +1,20 @@
 package fr.lesprojetscagnottes.core.content.repository;
 
 import fr.lesprojetscagnottes.core.content.entity.ContentEntity;
+import fr.lesprojetscagnottes.core.content.model.ContentModel;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.Set;
 
 public interface ContentRepository extends JpaRepository<ContentEntity, Long> {
     Page<ContentEntity> findAll(Pageable pageable);
-    Page<ContentEntity> findAllByOrganizationId(Pageable pageable, Long organizationId);
+    @Query(value = "select new fr.lesprojetscagnottes.core.content.model.ContentModel(c.id, c.createdAt, c.createdBy, c.updatedAt, c.updatedBy, c.name, c.organization.id) " +
+            "from ContentEntity c where c.organization.id = :id",
+            countQuery = "select count(c) from ContentEntity c where c.organization.id = :id")
+    Page<ContentModel> findAllSummariesByOrganizationId(Pageable pageable, @Param("id") Long organizationId);
     Set<ContentEntity> findAllByOrganizationId(Long organizationId);
 }
\ No newline at end of file
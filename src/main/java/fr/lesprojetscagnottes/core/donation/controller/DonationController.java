@@ -3,25 +3,33 @@ package fr.lesprojetscagnottes.core.donation.controller;
 import fr.lesprojetscagnottes.core.account.entity.AccountEntity;
 import fr.lesprojetscagnottes.core.account.repository.AccountRepository;
 import fr.lesprojetscagnottes.core.authorization.repository.AuthorityRepository;
-import fr.lesprojetscagnottes.core.budget.entity.BudgetEntity;
-import fr.lesprojetscagnottes.core.budget.repository.BudgetRepository;
 import fr.lesprojetscagnottes.core.campaign.entity.CampaignEntity;
 import fr.lesprojetscagnottes.core.campaign.model.CampaignStatus;
 import fr.lesprojetscagnottes.core.campaign.repository.CampaignRepository;
 import fr.lesprojetscagnottes.core.common.exception.BadRequestException;
 import fr.lesprojetscagnottes.core.common.exception.ForbiddenException;
 import fr.lesprojetscagnottes.core.common.exception.NotFoundException;
+import fr.lesprojetscagnottes.core.common.pagination.DataPage;
 import fr.lesprojetscagnottes.core.donation.entity.DonationEntity;
+import fr.lesprojetscagnottes.core.donation.entity.DonationOperationEntity;
+import fr.lesprojetscagnottes.core.donation.entity.DonationReconciliationEntity;
+import fr.lesprojetscagnottes.core.donation.entity.DonationReconciliationMismatchEntity;
 import fr.lesprojetscagnottes.core.donation.model.DonationModel;
+import fr.lesprojetscagnottes.core.donation.model.DonationOperationModel;
+import fr.lesprojetscagnottes.core.donation.model.DonationReconciliationMismatchModel;
+import fr.lesprojetscagnottes.core.donation.model.DonationReconciliationModel;
 import fr.lesprojetscagnottes.core.donation.queue.DonationOperationType;
+import fr.lesprojetscagnottes.core.donation.repository.DonationOperationRepository;
+import fr.lesprojetscagnottes.core.donation.repository.DonationReconciliationMismatchRepository;
+import fr.lesprojetscagnottes.core.donation.repository.DonationReconciliationRepository;
 import fr.lesprojetscagnottes.core.donation.repository.DonationRepository;
+import fr.lesprojetscagnottes.core.donation.service.DonationService;
 import fr.lesprojetscagnottes.core.donation.task.DonationProcessingTask;
+import fr.lesprojetscagnottes.core.donation.task.DonationReconciliationTask;
 import fr.lesprojetscagnottes.core.organization.entity.OrganizationEntity;
 import fr.lesprojetscagnottes.core.organization.repository.OrganizationRepository;
 import fr.lesprojetscagnottes.core.project.entity.ProjectEntity;
 import fr.lesprojetscagnottes.core.project.repository.ProjectRepository;
-import fr.lesprojetscagnottes.core.user.entity.UserEntity;
-import fr.lesprojetscagnottes.core.user.repository.UserRepository;
 import fr.lesprojetscagnottes.core.user.service.UserService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -32,16 +40,20 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
 
 import java.security.Principal;
 import java.util.Date;
-import java.util.List;
-import java.util.Optional;
-import java.util.Set;
 
 @Slf4j
 @RequestMapping("/api")
@@ -49,9 +61,15 @@ import java.util.Set;
 @RestController
 public class DonationController {
 
+    @Value("${fr.lesprojetscagnottes.core.donation.operations.wait}")
+    private long operationsMaxWait;
+
     @Autowired
     private DonationProcessingTask donationProcessingTask;
 
+    @Autowired
+    private DonationReconciliationTask donationReconciliationTask;
+
     @Autowired
     private AccountRepository accountRepository;
 
@@ -59,10 +77,19 @@ public class DonationController {
     private AuthorityRepository authorityRepository;
 
     @Autowired
-    private BudgetRepository budgetRepository;
+    private DonationRepository donationRepository;
 
     @Autowired
-    private DonationRepository donationRepository;
+    private DonationOperationRepository donationOperationRepository;
+
+    @Autowired
+    private DonationReconciliationRepository donationReconciliationRepository;
+
+    @Autowired
+    private DonationReconciliationMismatchRepository donationReconciliationMismatchRepository;
+
+    @Autowired
+    private DonationService donationService;
 
     @Autowired
     private OrganizationRepository organizationRepository;
@@ -73,96 +100,102 @@ public class DonationController {
     @Autowired
     private ProjectRepository projectRepository;
 
-    @Autowired
-    private UserRepository userRepository;
-
     @Autowired
     private UserService userService;
 
-    @Operation(summary = "Control donation amounts ", description = "Control donation amounts with accounts, campaigns and budgets", tags = { "Donations" })
+    @Operation(summary = "Control donation amounts", description = "Start a reconciliation of donation amounts with accounts, campaigns and budgets, only over rows changed since the last one if incremental", tags = { "Donations" })
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "200", description = "Control started", content = @Content(schema = @Schema()))
+            @ApiResponse(responseCode = "202", description = "Reconciliation started", content = @Content(mediaType = "application/json", schema = @Schema(implementation = DonationReconciliationModel.class))),
+            @ApiResponse(responseCode = "400", description = "A reconciliation is already starting", content = @Content(schema = @Schema()))
     })
     @RequestMapping(value = "/donation", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
-    @ResponseBody
     @PreAuthorize("hasRole('ADMIN')")
-    public void control(Principal principal) {
-        log.info("Donation amounts control started");
-        log.info("Control users");
-        List<UserEntity> users = userRepository.findAll();
-        users.forEach(user -> {
-            log.info("User {} : {} {}", user.getId(), user.getFirstname(), user.getLastname());
-            Set<BudgetEntity> budgets = budgetRepository.findAllByUser(user.getId());
-            Set<AccountEntity> accounts = accountRepository.findAllByOwnerId(user.getId());
-            if(budgets.size() != accounts.size()) {
-                log.warn("Number of accounts {} and budgets {} for user {} don't match", accounts.size(), budgets.size(), user.getId());
-            }
-            budgets.forEach(budget -> {
-                log.info("|- Budget {} : {}", budget.getId(), budget.getAmountPerMember());
-                Optional<AccountEntity> accountOptional = accounts.stream().filter(account -> account.getBudget().getId().equals(budget.getId())).findFirst();
-                if(accountOptional.isEmpty()) {
-                    log.error("Not account found for budget {} and user {}", budget.getId(), user.getId());
-                } else {
-                    AccountEntity account = accountOptional.get();
-                    log.info("|- Account {} : {} / {}", account.getId(), account.getAmount(), account.getInitialAmount());
-                    if(account.getInitialAmount() != budget.getAmountPerMember()) {
-                        log.error("Initial amount for account {} ({}) dont match with budget amount per member {} ({})", account.getId(), account.getInitialAmount(), budget.getId(), budget.getAmountPerMember());
-                    }
-                    Set<DonationEntity> accountDonations = donationRepository.findAllByAccountId(account.getId());
-                    final float[] totalDonationsAmount = {0f};
-                    accountDonations.forEach(donation -> totalDonationsAmount[0] += donation.getAmount());
-                    log.info("|- Total donations : {}", totalDonationsAmount[0]);
-                    if(account.getAmount() != account.getInitialAmount() - totalDonationsAmount[0]) {
-                        log.error("Total donations computed doest match with account amount ({} - {} != {})", account.getInitialAmount(), totalDonationsAmount[0], account.getAmount());
-                    }
-                }
-            });
-        });
-        log.info("Control budgets");
-        List<BudgetEntity> budgets = budgetRepository.findAll();
-        budgets.forEach(budget -> {
-            log.info("Budget {} : {}", budget.getId(), budget.getAmountPerMember());
-            Set<AccountEntity> accounts = accountRepository.findAllByBudgetId(budget.getId());
-            final float[] totalDonationsAmount = {0f};
-            accounts.forEach(account -> {
-                float accountTotalDonations = account.getInitialAmount() - account.getAmount();
-                log.info("|- Account {} : {} - {} = {}", account.getId(), account.getInitialAmount(), account.getAmount(), accountTotalDonations);
-                totalDonationsAmount[0] += accountTotalDonations;
-            });
-            log.info("|- Total donations : {}", totalDonationsAmount[0]);
-            if(budget.getTotalDonations() != totalDonationsAmount[0]) {
-                log.error("Account amounts doest match with budget total donations registered ({} != {})", totalDonationsAmount[0], budget.getTotalDonations());
-            }
-        });
-        log.info("Control campaigns");
-        List<CampaignEntity> campaigns = campaignRepository.findAll();
-        campaigns.forEach(campaign -> {
-            log.info("Campaign {} : {}", campaign.getId(), campaign.getId());
-            Set<DonationEntity> donations = donationRepository.findAllByCampaignId(campaign.getId());
-            final float[] totalDonationsAmount = {0f};
-            donations.forEach(donation -> {
-                log.info("|- Donation {} : {}", donation.getId(), donation.getAmount());
-                totalDonationsAmount[0] += donation.getAmount();
-            });
-            log.info("|- Total donations : {}", totalDonationsAmount[0]);
-            if(campaign.getTotalDonations() != totalDonationsAmount[0]) {
-                log.error("Total donations computed doest match with campaign total registered ({} != {})", totalDonationsAmount[0], campaign.getTotalDonations());
-            }
-        });
-        log.info("Donation amounts control finished");
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public DonationReconciliationModel control(@RequestParam(name = "incremental", defaultValue = "false") boolean incremental) {
+        DonationReconciliationEntity reconciliation = donationReconciliationTask.start(incremental);
+        if(reconciliation == null) {
+            log.error("Impossible to start donation reconciliation : another one is starting");
+            throw new BadRequestException();
+        }
+        return DonationReconciliationModel.fromEntity(reconciliation);
+    }
+
+    @Operation(summary = "List donation reconciliations", description = "List donation reconciliations, latest first", tags = { "Donations" })
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Return paginated reconciliations", content = @Content(schema = @Schema(implementation = DataPage.class))),
+            @ApiResponse(responseCode = "400", description = "Params are incorrects", content = @Content(schema = @Schema()))
+    })
+    @RequestMapping(value = "/donation/reconciliation", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
+    @PreAuthorize("hasRole('ADMIN')")
+    public DataPage<DonationReconciliationModel> listReconciliations(@RequestParam(name = "offset", defaultValue = "0") int offset, @RequestParam(name = "limit", defaultValue = "10") int limit) {
+
+        // Verify that params are correct
+        if(offset < 0 || limit <= 0) {
+            log.error("Impossible to get donation reconciliations : params are incorrect");
+            throw new BadRequestException();
+        }
+
+        Pageable pageable = PageRequest.of(offset, limit, Sort.by("startedAt").descending());
+        Page<DonationReconciliationEntity> entities = donationReconciliationRepository.findAll(pageable);
+        DataPage<DonationReconciliationModel> models = new DataPage<>(entities);
+        entities.getContent().forEach(entity -> models.getContent().add(DonationReconciliationModel.fromEntity(entity)));
+        return models;
+    }
+
+    @Operation(summary = "Get a donation reconciliation", description = "Get a donation reconciliation by its ID", tags = { "Donations" })
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Return the reconciliation", content = @Content(mediaType = "application/json", schema = @Schema(implementation = DonationReconciliationModel.class))),
+            @ApiResponse(responseCode = "404", description = "Reconciliation not found", content = @Content(schema = @Schema()))
+    })
+    @RequestMapping(value = "/donation/reconciliation/{id}", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
+    @PreAuthorize("hasRole('ADMIN')")
+    public DonationReconciliationModel getReconciliation(@PathVariable("id") long id) {
+        DonationReconciliationEntity reconciliation = donationReconciliationRepository.findById(id).orElse(null);
+        if(reconciliation == null) {
+            log.error("Impossible to get donation reconciliation : reconciliation {} not found", id);
+            throw new NotFoundException();
+        }
+        return DonationReconciliationModel.fromEntity(reconciliation);
+    }
+
+    @Operation(summary = "Get mismatches of a donation reconciliation", description = "Get mismatches found so far by a donation reconciliation", tags = { "Donations" })
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Return paginated mismatches", content = @Content(schema = @Schema(implementation = DataPage.class))),
+            @ApiResponse(responseCode = "400", description = "Params are incorrects", content = @Content(schema = @Schema())),
+            @ApiResponse(responseCode = "404", description = "Reconciliation not found", content = @Content(schema = @Schema()))
+    })
+    @RequestMapping(value = "/donation/reconciliation/{id}/mismatches", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
+    @PreAuthorize("hasRole('ADMIN')")
+    public DataPage<DonationReconciliationMismatchModel> getReconciliationMismatches(@PathVariable("id") long id, @RequestParam(name = "offset", defaultValue = "0") int offset, @RequestParam(name = "limit", defaultValue = "10") int limit) {
+
+        // Verify that params are correct
+        if(offset < 0 || limit <= 0) {
+            log.error("Impossible to get donation reconciliation mismatches : params are incorrect");
+            throw new BadRequestException();
+        }
+
+        if(!donationReconciliationRepository.existsById(id)) {
+            log.error("Impossible to get donation reconciliation mismatches : reconciliation {} not found", id);
+            throw new NotFoundException();
+        }
+
+        Page<DonationReconciliationMismatchEntity> entities = donationReconciliationMismatchRepository.findAllByReconciliationIdOrderByIdAsc(id, PageRequest.of(offset, limit));
+        DataPage<DonationReconciliationMismatchModel> models = new DataPage<>(entities);
+        entities.getContent().forEach(entity -> models.getContent().add(DonationReconciliationMismatchModel.fromEntity(entity)));
+        return models;
     }
 
     @Operation(summary = "Submit a donation", description = "Submit a new donation", tags = { "Donations" })
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "201", description = "Donation was successfully made", content = @Content(schema = @Schema())),
+            @ApiResponse(responseCode = "202", description = "Donation was submitted", content = @Content(mediaType = "application/json", schema = @Schema(implementation = DonationOperationModel.class))),
             @ApiResponse(responseCode = "400", description = "Body is incomplete", content = @Content(schema = @Schema())),
             @ApiResponse(responseCode = "403", description = "Principal has not enough privileges", content = @Content(schema = @Schema())),
             @ApiResponse(responseCode = "404", description = "At least one reference wasn't found", content = @Content(schema = @Schema()))
     })
     @RequestMapping(value = "/donation", method = RequestMethod.POST, produces = MediaType.APPLICATION_JSON_VALUE)
     @PreAuthorize("hasRole('USER')")
-    @ResponseStatus(HttpStatus.CREATED)
-    public void create(Principal principal, @RequestBody DonationModel donation) {
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public DonationOperationModel create(Principal principal, @RequestBody DonationModel donation, @RequestHeader(name = DonationService.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
 
         // Verify that body is complete
         if(donation == null || donation.getAccount() == null || donation.getCampaign() == null
@@ -171,6 +204,17 @@ public class DonationController {
             throw new BadRequestException();
         }
 
+        // A retried request is answered with the operation it submitted first
+        DonationOperationModel request = new DonationOperationModel();
+        request.setType(DonationOperationType.CREATION);
+        request.setAccountId(donation.getAccount().getId());
+        request.setCampaignId(donation.getCampaign().getId());
+        request.setAmount(donation.getAmount());
+        DonationOperationModel original = donationService.getIdempotentOperation(principal.getName(), idempotencyKey, request);
+        if(original != null) {
+            return original;
+        }
+
         // Retrieve full referenced objects
         AccountEntity account = accountRepository.findById(donation.getAccount().getId()).orElse(null);
         CampaignEntity campaign = campaignRepository.findById(donation.getCampaign().getId()).orElse(null);
@@ -239,12 +283,12 @@ public class DonationController {
         donationToSave.setAmount(amount);
 
         // Add donation to queue
-        donationProcessingTask.insert(donationToSave, DonationOperationType.CREATION);
+        return submit(principal, donationToSave, request, idempotencyKey);
     }
 
     @Operation(summary = "Delete a donation by its ID", description = "Delete a donation by its ID", tags = { "Donations" })
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "200", description = "Donation deleted", content = @Content(schema = @Schema())),
+            @ApiResponse(responseCode = "202", description = "Donation deletion was submitted", content = @Content(mediaType = "application/json", schema = @Schema(implementation = DonationOperationModel.class))),
             @ApiResponse(responseCode = "400", description = "ID is incorrect", content = @Content(schema = @Schema())),
             @ApiResponse(responseCode = "403", description = "Principal has not enough privileges", content = @Content(schema = @Schema())),
             @ApiResponse(responseCode = "404", description = "Donation not found", content = @Content(schema = @Schema()))
@@ -252,13 +296,23 @@ public class DonationController {
     @RequestMapping(value = "/donation/{id}", method = RequestMethod.DELETE, produces = MediaType.APPLICATION_JSON_VALUE)
     @ResponseBody
     @PreAuthorize("hasRole('USER')")
-    public void delete(Principal principal, @PathVariable("id") long id) {
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public DonationOperationModel delete(Principal principal, @PathVariable("id") long id, @RequestHeader(name = DonationService.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
         // Fails if campaign ID is missing
         if(id <= 0) {
             log.error("Impossible to delete donation : ID is incorrect");
             throw new BadRequestException();
         }
 
+        // A retried request is answered with the operation it submitted first
+        DonationOperationModel request = new DonationOperationModel();
+        request.setType(DonationOperationType.DELETION);
+        request.setDonationId(id);
+        DonationOperationModel original = donationService.getIdempotentOperation(principal.getName(), idempotencyKey, request);
+        if(original != null) {
+            return original;
+        }
+
         // Retrieve full referenced objects
         DonationEntity donation;
         try {
@@ -283,7 +337,57 @@ public class DonationController {
         }
 
         // Delete donation
-        donationProcessingTask.insert(donation, DonationOperationType.DELETION);
+        return submit(principal, donation, request, idempotencyKey);
+    }
+
+    @Operation(summary = "Get a donation operation", description = "Get the status of a submitted donation operation, waiting at most the given milliseconds for it to be processed", tags = { "Donations" })
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Returns the donation operation", content = @Content(mediaType = "application/json", schema = @Schema(implementation = DonationOperationModel.class))),
+            @ApiResponse(responseCode = "400", description = "ID is incorrect", content = @Content(schema = @Schema())),
+            @ApiResponse(responseCode = "403", description = "Principal has not enough privileges", content = @Content(schema = @Schema())),
+            @ApiResponse(responseCode = "404", description = "Donation operation not found", content = @Content(schema = @Schema()))
+    })
+    @RequestMapping(value = "/donation/operation/{id}", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
+    @PreAuthorize("hasRole('USER')")
+    public DeferredResult<DonationOperationModel> getOperation(Principal principal, @PathVariable("id") long id, @RequestParam(name = "wait", defaultValue = "0") long wait) {
+        // Fails if operation ID is missing
+        if(id <= 0 || wait < 0) {
+            log.error("Impossible to get donation operation : ID or wait is incorrect");
+            throw new BadRequestException();
+        }
+
+        // Retrieve full referenced objects
+        DonationOperationEntity operation = donationOperationRepository.findById(id).orElse(null);
+        if(operation == null) {
+            log.error("Impossible to get donation operation : operation {} not found", id);
+            throw new NotFoundException();
+        }
+
+        // Verify that principal owns the account or is admin
+        long userLoggedInId = userService.get(principal).getId();
+        Long ownerId = accountRepository.findById(operation.getAccountId()).map(account -> account.getOwner().getId()).orElse(null);
+        if(!Long.valueOf(userLoggedInId).equals(ownerId) && userService.isNotAdmin(userLoggedInId)) {
+            log.error("Impossible to get donation operation : principal {} has not enough privileges", userLoggedInId);
+            throw new ForbiddenException();
+        }
+
+        return donationService.watchOperation(operation, Math.min(wait, operationsMaxWait));
+    }
+
+    private DonationOperationModel submit(Principal principal, DonationEntity donation, DonationOperationModel request, String idempotencyKey) {
+        DonationOperationModel operation;
+        try {
+            operation = DonationOperationModel.fromEntity(donationProcessingTask.insert(donation, request.getType(), idempotencyKey));
+        } catch(DataIntegrityViolationException e) {
+            // The same key was submitted concurrently : the operation queued first is the original one
+            operation = donationService.getIdempotentOperation(principal.getName(), idempotencyKey, request);
+            if(operation == null) {
+                throw e;
+            }
+            return operation;
+        }
+        donationService.rememberIdempotentOperation(principal.getName(), operation);
+        return operation;
     }
 
 
@@ -0,0 +1,15 @@
+package fr.lesprojetscagnottes.core.donation.entity;
+
+import fr.lesprojetscagnottes.core.donation.model.DonationReconciliationMismatchModel;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Table;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter(AccessLevel.PUBLIC)
+@Setter(AccessLevel.PUBLIC)
+@Entity
+@Table(name = "donation_reconciliation_mismatches")
+public class DonationReconciliationMismatchEntity extends DonationReconciliationMismatchModel {
+}
@@ -0,0 +1,5 @@
+package fr.lesprojetscagnottes.core.donation.model;
+
+public enum DonationMismatchType {
+    MISSING_ACCOUNT, ACCOUNT_INITIAL_AMOUNT, ACCOUNT_AMOUNT, BUDGET_TOTAL, CAMPAIGN_TOTAL
+}
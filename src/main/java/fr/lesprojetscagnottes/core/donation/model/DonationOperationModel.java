@@ -0,0 +1,80 @@
+package fr.lesprojetscagnottes.core.donation.model;
+
+import fr.lesprojetscagnottes.core.common.audit.AuditEntity;
+import fr.lesprojetscagnottes.core.donation.entity.DonationOperationEntity;
+import fr.lesprojetscagnottes.core.donation.queue.DonationOperationStatus;
+import fr.lesprojetscagnottes.core.donation.queue.DonationOperationType;
+import jakarta.persistence.Column;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.MappedSuperclass;
+import jakarta.validation.constraints.NotNull;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter(AccessLevel.PUBLIC)
+@Setter(AccessLevel.PUBLIC)
+@MappedSuperclass
+public class DonationOperationModel extends AuditEntity<String> {
+
+    @Column(length = 50)
+    @NotNull
+    @Enumerated(EnumType.STRING)
+    protected DonationOperationType type;
+
+    @Column(length = 50)
+    @NotNull
+    @Enumerated(EnumType.STRING)
+    protected DonationOperationStatus status;
+
+    @Column
+    protected int attempts = 0;
+
+    @Column(name = "donation_id")
+    protected Long donationId;
+
+    @Column(name = "account_id")
+    protected Long accountId;
+
+    @Column(name = "campaign_id")
+    protected Long campaignId;
+
+    @Column
+    protected Float amount;
+
+    @Column(name = "idempotency_key")
+    protected String idempotencyKey;
+
+    public static DonationOperationModel fromEntity(DonationOperationEntity entity) {
+        DonationOperationModel model = new DonationOperationModel();
+        model.setCreatedAt(entity.getCreatedAt());
+        model.setCreatedBy(entity.getCreatedBy());
+        model.setUpdatedAt(entity.getUpdatedAt());
+        model.setUpdatedBy(entity.getUpdatedBy());
+        model.setId(entity.getId());
+        model.setType(entity.getType());
+        model.setStatus(entity.getStatus());
+        model.setAttempts(entity.getAttempts());
+        model.setDonationId(entity.getDonationId());
+        model.setAccountId(entity.getAccountId());
+        model.setCampaignId(entity.getCampaignId());
+        model.setAmount(entity.getAmount());
+        model.setIdempotencyKey(entity.getIdempotencyKey());
+        return model;
+    }
+
+    @Override
+    public String toString() {
+        return "DonationOperationModel{" +
+                "type=" + type +
+                ", status=" + status +
+                ", attempts=" + attempts +
+                ", donationId=" + donationId +
+                ", accountId=" + accountId +
+                ", campaignId=" + campaignId +
+                ", amount=" + amount +
+                ", id=" + id +
+                '}';
+    }
+}
@@ -0,0 +1,68 @@
+package fr.lesprojetscagnottes.core.donation.model;
+
+import fr.lesprojetscagnottes.core.common.audit.AuditEntity;
+import fr.lesprojetscagnottes.core.donation.entity.DonationReconciliationMismatchEntity;
+import jakarta.persistence.Column;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.MappedSuperclass;
+import jakarta.validation.constraints.NotNull;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter(AccessLevel.PUBLIC)
+@Setter(AccessLevel.PUBLIC)
+@MappedSuperclass
+public class DonationReconciliationMismatchModel extends AuditEntity<String> {
+
+    @Column(name = "reconciliation_id")
+    @NotNull
+    protected Long reconciliationId;
+
+    @Column(length = 50)
+    @NotNull
+    @Enumerated(EnumType.STRING)
+    protected DonationMismatchType type;
+
+    @Column(name = "entity_id")
+    protected Long entityId;
+
+    @Column(name = "related_id")
+    protected Long relatedId;
+
+    @Column
+    protected Float expected;
+
+    @Column
+    protected Float actual;
+
+    public static DonationReconciliationMismatchModel fromEntity(DonationReconciliationMismatchEntity entity) {
+        DonationReconciliationMismatchModel model = new DonationReconciliationMismatchModel();
+        model.setCreatedAt(entity.getCreatedAt());
+        model.setCreatedBy(entity.getCreatedBy());
+        model.setUpdatedAt(entity.getUpdatedAt());
+        model.setUpdatedBy(entity.getUpdatedBy());
+        model.setId(entity.getId());
+        model.setReconciliationId(entity.getReconciliationId());
+        model.setType(entity.getType());
+        model.setEntityId(entity.getEntityId());
+        model.setRelatedId(entity.getRelatedId());
+        model.setExpected(entity.getExpected());
+        model.setActual(entity.getActual());
+        return model;
+    }
+
+    @Override
+    public String toString() {
+        return "DonationReconciliationMismatchModel{" +
+                "reconciliationId=" + reconciliationId +
+                ", type=" + type +
+                ", entityId=" + entityId +
+                ", relatedId=" + relatedId +
+                ", expected=" + expected +
+                ", actual=" + actual +
+                ", id=" + id +
+                '}';
+    }
+}
@@ -0,0 +1,69 @@
+package fr.lesprojetscagnottes.core.donation.model;
+
+import fr.lesprojetscagnottes.core.common.audit.AuditEntity;
+import fr.lesprojetscagnottes.core.donation.entity.DonationReconciliationEntity;
+import jakarta.persistence.Column;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.MappedSuperclass;
+import jakarta.validation.constraints.NotNull;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.Date;
+
+@Getter(AccessLevel.PUBLIC)
+@Setter(AccessLevel.PUBLIC)
+@MappedSuperclass
+public class DonationReconciliationModel extends AuditEntity<String> {
+
+    @Column
+    protected boolean incremental;
+
+    @Column(length = 50)
+    @NotNull
+    @Enumerated(EnumType.STRING)
+    protected DonationReconciliationStatus status;
+
+    @Column
+    protected Date since;
+
+    @Column(name = "started_at")
+    protected Date startedAt;
+
+    @Column(name = "finished_at")
+    protected Date finishedAt;
+
+    @Column
+    protected int mismatches = 0;
+
+    public static DonationReconciliationModel fromEntity(DonationReconciliationEntity entity) {
+        DonationReconciliationModel model = new DonationReconciliationModel();
+        model.setCreatedAt(entity.getCreatedAt());
+        model.setCreatedBy(entity.getCreatedBy());
+        model.setUpdatedAt(entity.getUpdatedAt());
+        model.setUpdatedBy(entity.getUpdatedBy());
+        model.setId(entity.getId());
+        model.setIncremental(entity.isIncremental());
+        model.setStatus(entity.getStatus());
+        model.setSince(entity.getSince());
+        model.setStartedAt(entity.getStartedAt());
+        model.setFinishedAt(entity.getFinishedAt());
+        model.setMismatches(entity.getMismatches());
+        return model;
+    }
+
+    @Override
+    public String toString() {
+        return "DonationReconciliationModel{" +
+                "incremental=" + incremental +
+                ", status=" + status +
+                ", since=" + since +
+                ", startedAt=" + startedAt +
+                ", finishedAt=" + finishedAt +
+                ", mismatches=" + mismatches +
+                ", id=" + id +
+                '}';
+    }
+}
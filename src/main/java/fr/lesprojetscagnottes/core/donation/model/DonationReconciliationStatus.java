@@ -0,0 +1,5 @@
+package fr.lesprojetscagnottes.core.donation.model;
+
+public enum DonationReconciliationStatus {
+    RUNNING, FINISHED, FAILED
+}
@@ -0,0 +1,5 @@
+package fr.lesprojetscagnottes.core.donation.queue;
+
+public enum DonationOperationStatus {
+    PENDING, APPLIED, REJECTED
+}
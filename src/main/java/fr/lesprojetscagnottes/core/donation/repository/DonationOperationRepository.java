@@ -0,0 +1,51 @@
+package fr.lesprojetscagnottes.core.donation.repository;
+
+import fr.lesprojetscagnottes.core.donation.entity.DonationOperationEntity;
+import fr.lesprojetscagnottes.core.donation.queue.DonationOperationStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+public interface DonationOperationRepository extends JpaRepository<DonationOperationEntity, Long> {
+
+    Optional<DonationOperationEntity> findByCreatedByAndIdempotencyKey(String createdBy, String idempotencyKey);
+
+    @Query(value = "SELECT pg_try_advisory_xact_lock(hashtext('donation_operations'), :_lane)", nativeQuery = true)
+    boolean lockLane(@Param("_lane") int lane);
+
+    @Query(value = "SELECT * FROM donation_operations WHERE status = 'PENDING' AND mod(account_id, :_lanes) = :_lane ORDER BY id LIMIT :_limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<DonationOperationEntity> claimPending(@Param("_lanes") int lanes, @Param("_lane") int lane, @Param("_limit") int limit);
+
+    @Query(value = "SELECT count(*) FROM donation_operations WHERE status = 'PENDING' AND mod(account_id, :_lanes) = :_lane", nativeQuery = true)
+    long countPending(@Param("_lanes") int lanes, @Param("_lane") int lane);
+
+    @Query(value = "SELECT * FROM donation_operations WHERE id = :_id AND status = 'PENDING' FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    Optional<DonationOperationEntity> claimPending(@Param("_id") long id);
+
+    @Modifying
+    @Query("UPDATE DonationOperationEntity o SET o.status = :status, o.updatedAt = CURRENT_TIMESTAMP WHERE o.id IN :ids")
+    int updateStatus(@Param("ids") Collection<Long> ids, @Param("status") DonationOperationStatus status);
+
+    // One notification per campaign, delivered to every node listening once the transaction commits
+    @Query(value = "SELECT count(*) FROM (SELECT pg_notify('campaign_funding', CAST(json_build_object(" +
+            "'campaignId', f.campaign_id, 'organizationId', f.organization_id, 'amount', f.amount, 'donations', f.donations) AS text)) FROM (" +
+            "SELECT o.campaign_id, p.organization_id, " +
+            "sum(CASE WHEN o.type = 'CREATION' THEN o.amount ELSE -o.amount END) AS amount, " +
+            "sum(CASE WHEN o.type = 'CREATION' THEN 1 ELSE -1 END) AS donations " +
+            "FROM donation_operations o " +
+            "INNER JOIN campaigns c ON c.id = o.campaign_id " +
+            "LEFT JOIN projects p ON p.id = c.project_id " +
+            "WHERE o.id IN (:_ids) GROUP BY o.campaign_id, p.organization_id) f) n", nativeQuery = true)
+    long notifyFundings(@Param("_ids") Collection<Long> ids);
+
+    @Modifying
+    @Query("DELETE FROM DonationOperationEntity o WHERE o.status <> fr.lesprojetscagnottes.core.donation.queue.DonationOperationStatus.PENDING AND o.updatedAt < :before")
+    int deleteProcessedBefore(@Param("before") Date before);
+
+}
@@ -0,0 +1,78 @@
+package fr.lesprojetscagnottes.core.donation.repository;
+
+import fr.lesprojetscagnottes.core.donation.entity.DonationReconciliationMismatchEntity;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Date;
+
+public interface DonationReconciliationMismatchRepository extends JpaRepository<DonationReconciliationMismatchEntity, Long> {
+
+    // Rows to check : everything on a full run, otherwise rows updated or touched by a donation operation since the last run
+    String ACCOUNTS_SCOPE = "SELECT id FROM accounts WHERE :_full OR updated_at >= CAST(:_since AS timestamp) " +
+            "UNION SELECT account_id FROM donation_operations WHERE NOT :_full AND updated_at >= CAST(:_since AS timestamp)";
+
+    String BUDGETS_SCOPE = "SELECT id FROM budgets WHERE :_full OR updated_at >= CAST(:_since AS timestamp) " +
+            "UNION SELECT budget_id FROM accounts WHERE NOT :_full AND id IN (" + ACCOUNTS_SCOPE + ")";
+
+    String CAMPAIGNS_SCOPE = "SELECT id FROM campaigns WHERE :_full OR updated_at >= CAST(:_since AS timestamp) " +
+            "UNION SELECT campaign_id FROM donation_operations WHERE NOT :_full AND updated_at >= CAST(:_since AS timestamp)";
+
+    // Totals are the compacted column plus the slots not compacted yet
+    String BUDGET_TOTAL = "(coalesce(b.total_donations, 0) + coalesce((SELECT sum(bdc.amount) FROM budget_donation_counters bdc WHERE bdc.budget_id = b.id), 0))";
+
+    String CAMPAIGN_TOTAL = "(coalesce(c.total_donations, 0) + coalesce((SELECT sum(cdc.amount) FROM campaign_donation_counters cdc WHERE cdc.campaign_id = c.id), 0))";
+
+    String INSERT_MISMATCH = "INSERT INTO donation_reconciliation_mismatches (id, reconciliation_id, type, entity_id, related_id, expected, actual) " +
+            "SELECT nextval('donation_reconciliation_mismatches_seq'), :_reconciliation_id, ";
+
+    Page<DonationReconciliationMismatchEntity> findAllByReconciliationIdOrderByIdAsc(long reconciliationId, Pageable pageable);
+
+    @Modifying
+    @Query(value = INSERT_MISMATCH + "'MISSING_ACCOUNT', ou.user_id, b.id, NULL, NULL " +
+            "FROM budgets b " +
+            "INNER JOIN organizations_users ou ON ou.organization_id = b.organization_id " +
+            "WHERE (:_full OR b.id IN (" + BUDGETS_SCOPE + ") OR ou.user_id IN (SELECT id FROM users WHERE updated_at >= CAST(:_since AS timestamp))) " +
+            "AND NOT EXISTS (SELECT 1 FROM accounts a WHERE a.owner_id = ou.user_id AND a.budget_id = b.id)", nativeQuery = true)
+    int insertMissingAccounts(@Param("_reconciliation_id") long reconciliationId, @Param("_full") boolean full, @Param("_since") Date since);
+
+    @Modifying
+    @Query(value = INSERT_MISMATCH + "'ACCOUNT_INITIAL_AMOUNT', a.id, b.id, b.amount_per_member, a.initial_amount " +
+            "FROM accounts a " +
+            "INNER JOIN budgets b ON b.id = a.budget_id " +
+            "WHERE (:_full OR a.id IN (" + ACCOUNTS_SCOPE + ") OR b.updated_at >= CAST(:_since AS timestamp)) " +
+            "AND abs(a.initial_amount - b.amount_per_member) > 0.01", nativeQuery = true)
+    int insertAccountInitialAmounts(@Param("_reconciliation_id") long reconciliationId, @Param("_full") boolean full, @Param("_since") Date since);
+
+    @Modifying
+    @Query(value = INSERT_MISMATCH + "'ACCOUNT_AMOUNT', a.id, a.budget_id, a.initial_amount - coalesce(d.total, 0), a.amount " +
+            "FROM accounts a " +
+            "LEFT JOIN (SELECT account_id, sum(amount) AS total FROM donations " +
+            "    WHERE :_full OR account_id IN (" + ACCOUNTS_SCOPE + ") GROUP BY account_id) d ON d.account_id = a.id " +
+            "WHERE (:_full OR a.id IN (" + ACCOUNTS_SCOPE + ")) " +
+            "AND abs(a.amount - (a.initial_amount - coalesce(d.total, 0))) > 0.01", nativeQuery = true)
+    int insertAccountAmounts(@Param("_reconciliation_id") long reconciliationId, @Param("_full") boolean full, @Param("_since") Date since);
+
+    @Modifying
+    @Query(value = INSERT_MISMATCH + "'BUDGET_TOTAL', b.id, NULL, coalesce(t.total, 0), " + BUDGET_TOTAL + " " +
+            "FROM budgets b " +
+            "LEFT JOIN (SELECT budget_id, sum(initial_amount - amount) AS total FROM accounts " +
+            "    WHERE :_full OR budget_id IN (" + BUDGETS_SCOPE + ") GROUP BY budget_id) t ON t.budget_id = b.id " +
+            "WHERE (:_full OR b.id IN (" + BUDGETS_SCOPE + ")) " +
+            "AND abs(" + BUDGET_TOTAL + " - coalesce(t.total, 0)) > 0.01", nativeQuery = true)
+    int insertBudgetTotals(@Param("_reconciliation_id") long reconciliationId, @Param("_full") boolean full, @Param("_since") Date since);
+
+    @Modifying
+    @Query(value = INSERT_MISMATCH + "'CAMPAIGN_TOTAL', c.id, c.budget_id, coalesce(d.total, 0), " + CAMPAIGN_TOTAL + " " +
+            "FROM campaigns c " +
+            "LEFT JOIN (SELECT campaign_id, sum(amount) AS total FROM donations " +
+            "    WHERE :_full OR campaign_id IN (" + CAMPAIGNS_SCOPE + ") GROUP BY campaign_id) d ON d.campaign_id = c.id " +
+            "WHERE (:_full OR c.id IN (" + CAMPAIGNS_SCOPE + ")) " +
+            "AND abs(" + CAMPAIGN_TOTAL + " - coalesce(d.total, 0)) > 0.01", nativeQuery = true)
+    int insertCampaignTotals(@Param("_reconciliation_id") long reconciliationId, @Param("_full") boolean full, @Param("_since") Date since);
+
+}
@@ -0,0 +1,24 @@
+package fr.lesprojetscagnottes.core.donation.repository;
+
+import fr.lesprojetscagnottes.core.donation.entity.DonationReconciliationEntity;
+import fr.lesprojetscagnottes.core.donation.model.DonationReconciliationStatus;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.Date;
+import java.util.Optional;
+
+public interface DonationReconciliationRepository extends JpaRepository<DonationReconciliationEntity, Long> {
+
+    Page<DonationReconciliationEntity> findAll(Pageable pageable);
+
+    Optional<DonationReconciliationEntity> findFirstByStatusOrderByStartedAtDesc(DonationReconciliationStatus status);
+
+    Optional<DonationReconciliationEntity> findFirstByStatusAndUpdatedAtGreaterThanOrderByStartedAtDesc(DonationReconciliationStatus status, Date updatedAt);
+
+    @Query(value = "SELECT pg_try_advisory_xact_lock(hashtext('donation_reconciliations'))", nativeQuery = true)
+    boolean lock();
+
+}
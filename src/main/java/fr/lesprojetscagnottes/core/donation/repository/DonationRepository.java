@@ -3,10 +3,12 @@ package fr.lesprojetscagnottes.core.donation.repository;
 import fr.lesprojetscagnottes.core.donation.entity.DonationEntity;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.List;
 import java.util.Set;
 
 public interface DonationRepository extends JpaRepository<DonationEntity, Long> {
@@ -21,10 +23,18 @@ public interface DonationRepository extends JpaRepository<DonationEntity, Long>
 
     Page<DonationEntity> findByCampaign_idOrderByIdAsc(long id, Pageable pageable);
 
-    @Query(value = "SELECT create_donation(:_account_id, :_campaign_id, :_amount);", nativeQuery = true)
-    boolean createDonation(@Param("_account_id") long accountId, @Param("_campaign_id") long campaignId, @Param("_amount") float amount);
+    Slice<DonationEntity> findAllByCampaignIdAndIdGreaterThanOrderByIdAsc(long campaignId, long after, Pageable pageable);
 
-    @Query(value = "SELECT delete_donation(:_donation_id);", nativeQuery = true)
-    boolean deleteDonation(@Param("_donation_id") long donationId);
+    @Query(value = "SELECT compact_donation_counters()", nativeQuery = true)
+    int compactDonationCounters();
+
+    @Query(value = "SELECT refund_campaign(:_campaign_id)", nativeQuery = true)
+    int refundCampaign(@Param("_campaign_id") long campaignId);
+
+    @Query(value = "SELECT r.applied FROM unnest(create_donations(CAST(:_account_ids AS bigint[]), CAST(:_campaign_ids AS bigint[]), CAST(:_amounts AS real[]))) WITH ORDINALITY AS r(applied, position) ORDER BY r.position", nativeQuery = true)
+    List<Boolean> createDonations(@Param("_account_ids") Long[] accountIds, @Param("_campaign_ids") Long[] campaignIds, @Param("_amounts") Float[] amounts);
+
+    @Query(value = "SELECT r.applied FROM unnest(delete_donations(CAST(:_donation_ids AS bigint[]))) WITH ORDINALITY AS r(applied, position) ORDER BY r.position", nativeQuery = true)
+    List<Boolean> deleteDonations(@Param("_donation_ids") Long[] donationIds);
 
 }
\ No newline at end of file
@@ -0,0 +1,63 @@
+package fr.lesprojetscagnottes.core.donation.scheduler;
+
+import fr.lesprojetscagnottes.core.donation.repository.DonationOperationRepository;
+import fr.lesprojetscagnottes.core.donation.repository.DonationRepository;
+import fr.lesprojetscagnottes.core.donation.task.DonationReconciliationTask;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+@Component
+@Slf4j
+public class DonationScheduler {
+
+    @Value("${fr.lesprojetscagnottes.core.donation.operations.retention}")
+    private int operationsRetention;
+
+    private final DonationOperationRepository donationOperationRepository;
+
+    private final DonationRepository donationRepository;
+
+    private final DonationReconciliationTask donationReconciliationTask;
+
+    @Autowired
+    public DonationScheduler(DonationOperationRepository donationOperationRepository,
+                             DonationRepository donationRepository,
+                             DonationReconciliationTask donationReconciliationTask) {
+        this.donationOperationRepository = donationOperationRepository;
+        this.donationRepository = donationRepository;
+        this.donationReconciliationTask = donationReconciliationTask;
+    }
+
+    @Scheduled(cron = "${fr.lesprojetscagnottes.core.schedule.donationoperationspurge}")
+    @Transactional
+    public void purgeDonationOperations() {
+        log.info("[purgeDonationOperations] Start Donation Operations Purge");
+        Date before = new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(operationsRetention));
+        int deleted = donationOperationRepository.deleteProcessedBefore(before);
+        log.info("[purgeDonationOperations] " + deleted + " donation operation(s) processed before " + before + " deleted");
+        log.info("[purgeDonationOperations] End Donation Operations Purge");
+    }
+
+    @Scheduled(cron = "${fr.lesprojetscagnottes.core.schedule.donationcounterscompaction}")
+    @Transactional
+    public void compactDonationCounters() {
+        log.info("[compactDonationCounters] Start Donation Counters Compaction");
+        int compacted = donationRepository.compactDonationCounters();
+        log.info("[compactDonationCounters] " + compacted + " campaign(s) and budget(s) compacted");
+        log.info("[compactDonationCounters] End Donation Counters Compaction");
+    }
+
+    @Scheduled(cron = "${fr.lesprojetscagnottes.core.schedule.donationreconciliation}")
+    public void reconcileDonations() {
+        log.info("[reconcileDonations] Start Incremental Donation Reconciliation");
+        donationReconciliationTask.start(true);
+    }
+
+}
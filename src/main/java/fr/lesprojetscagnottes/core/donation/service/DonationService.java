@@ -1,23 +1,151 @@
 package fr.lesprojetscagnottes.core.donation.service;
 
+import fr.lesprojetscagnottes.core.common.cache.ExpiringCache;
+import fr.lesprojetscagnottes.core.common.exception.BadRequestException;
 import fr.lesprojetscagnottes.core.donation.entity.DonationEntity;
+import fr.lesprojetscagnottes.core.donation.entity.DonationOperationEntity;
+import fr.lesprojetscagnottes.core.donation.model.DonationOperationModel;
+import fr.lesprojetscagnottes.core.donation.queue.DonationOperationStatus;
+import fr.lesprojetscagnottes.core.donation.repository.DonationOperationRepository;
 import fr.lesprojetscagnottes.core.donation.repository.DonationRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.async.DeferredResult;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Slf4j
 @Service
 public class DonationService {
 
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
+    @Value("${fr.lesprojetscagnottes.core.donation.idempotency.cache.size}")
+    private int idempotencyCacheSize;
+
+    @Value("${fr.lesprojetscagnottes.core.donation.idempotency.cache.ttl}")
+    private long idempotencyCacheTtl;
+
     private final DonationRepository donationRepository;
 
+    private final DonationOperationRepository donationOperationRepository;
+
+    private final Map<Long, Set<DeferredResult<DonationOperationModel>>> operationWatchers = new ConcurrentHashMap<>();
+
+    // Operations by requester and idempotency key, the unique key column answers for evicted keys and for other nodes
+    private ExpiringCache<String, DonationOperationModel> idempotentOperations;
+
     @Autowired
-    public DonationService(DonationRepository donationRepository) {
+    public DonationService(DonationRepository donationRepository, DonationOperationRepository donationOperationRepository) {
         this.donationRepository = donationRepository;
+        this.donationOperationRepository = donationOperationRepository;
+    }
+
+    @PostConstruct
+    public void init() {
+        idempotentOperations = new ExpiringCache<>(idempotencyCacheSize, idempotencyCacheTtl);
     }
 
     public Page<DonationEntity> findByCampaign_idOrderByIdAsc(long campaignId, PageRequest id) {
         return donationRepository.findByCampaign_idOrderByIdAsc(campaignId, id);
     }
+
+    public Slice<DonationEntity> findAllByCampaignIdAfter(long campaignId, long after, int limit) {
+        return donationRepository.findAllByCampaignIdAndIdGreaterThanOrderByIdAsc(campaignId, after, PageRequest.of(0, limit));
+    }
+
+    public DonationOperationModel getIdempotentOperation(String requester, String idempotencyKey, DonationOperationModel request) {
+        if (idempotencyKey == null) {
+            return null;
+        }
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > 255) {
+            log.error("Impossible to submit donation operation : idempotency key is incorrect");
+            throw new BadRequestException();
+        }
+
+        String cacheKey = requester + ":" + idempotencyKey;
+        DonationOperationModel original = idempotentOperations.get(cacheKey);
+        if (original == null) {
+            original = donationOperationRepository.findByCreatedByAndIdempotencyKey(requester, idempotencyKey)
+                    .map(DonationOperationModel::fromEntity)
+                    .orElse(null);
+            if (original == null) {
+                return null;
+            }
+        } else if (original.getStatus() == DonationOperationStatus.PENDING) {
+            // Processed operations never change again, only pending ones are read back for their current status
+            original = donationOperationRepository.findById(original.getId())
+                    .map(DonationOperationModel::fromEntity)
+                    .orElse(original);
+        }
+        idempotentOperations.put(cacheKey, original);
+
+        // A key can only be replayed with the request it was first sent with
+        boolean sameRequest = original.getType() == request.getType() && switch (request.getType()) {
+            case CREATION -> Objects.equals(original.getAccountId(), request.getAccountId())
+                    && Objects.equals(original.getCampaignId(), request.getCampaignId())
+                    && Objects.equals(original.getAmount(), request.getAmount());
+            case DELETION -> Objects.equals(original.getDonationId(), request.getDonationId());
+        };
+        if (!sameRequest) {
+            log.error("Impossible to submit donation operation : idempotency key {} was used for {}", idempotencyKey, original);
+            throw new BadRequestException();
+        }
+        log.debug("Donation operation {} replayed for idempotency key {}", original.getId(), idempotencyKey);
+        return original;
+    }
+
+    public void rememberIdempotentOperation(String requester, DonationOperationModel operation) {
+        if (operation.getIdempotencyKey() != null) {
+            idempotentOperations.put(requester + ":" + operation.getIdempotencyKey(), operation);
+        }
+    }
+
+    public DeferredResult<DonationOperationModel> watchOperation(DonationOperationEntity operation, long timeout) {
+        DeferredResult<DonationOperationModel> result = new DeferredResult<>(timeout);
+        long id = operation.getId();
+        if (timeout <= 0 || operation.getStatus() != DonationOperationStatus.PENDING) {
+            result.setResult(DonationOperationModel.fromEntity(operation));
+            return result;
+        }
+
+        operationWatchers.computeIfAbsent(id, key -> ConcurrentHashMap.newKeySet()).add(result);
+        result.onCompletion(() -> operationWatchers.computeIfPresent(id, (key, watchers) -> {
+            watchers.remove(result);
+            return watchers.isEmpty() ? null : watchers;
+        }));
+
+        // Operations processed by another node are only seen when reloaded
+        result.onTimeout(() -> donationOperationRepository.findById(id)
+                .ifPresent(current -> result.setResult(DonationOperationModel.fromEntity(current))));
+        donationOperationRepository.findById(id)
+                .filter(current -> current.getStatus() != DonationOperationStatus.PENDING)
+                .ifPresent(current -> result.setResult(DonationOperationModel.fromEntity(current)));
+        return result;
+    }
+
+    public void notifyOperationsProcessed(Collection<Long> ids) {
+        List<Long> watched = ids.stream().filter(operationWatchers::containsKey).toList();
+        if (watched.isEmpty()) {
+            return;
+        }
+        donationOperationRepository.findAllById(watched).forEach(operation -> {
+            Set<DeferredResult<DonationOperationModel>> watchers = operationWatchers.remove(operation.getId());
+            if (watchers != null) {
+                DonationOperationModel model = DonationOperationModel.fromEntity(operation);
+                watchers.forEach(watcher -> watcher.setResult(model));
+            }
+        });
+    }
 }
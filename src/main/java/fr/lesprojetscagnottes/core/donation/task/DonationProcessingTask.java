@@ -1,65 +1,363 @@
 package fr.lesprojetscagnottes.core.donation.task;
 
 import fr.lesprojetscagnottes.core.donation.entity.DonationEntity;
-import fr.lesprojetscagnottes.core.donation.queue.DonationOperation;
+import fr.lesprojetscagnottes.core.donation.entity.DonationOperationEntity;
+import fr.lesprojetscagnottes.core.donation.queue.DonationOperationStatus;
 import fr.lesprojetscagnottes.core.donation.queue.DonationOperationType;
+import fr.lesprojetscagnottes.core.donation.repository.DonationOperationRepository;
 import fr.lesprojetscagnottes.core.donation.repository.DonationRepository;
+import fr.lesprojetscagnottes.core.donation.service.DonationService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.util.LinkedList;
-import java.util.Queue;
-import java.util.TimerTask;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Slf4j
 @Component
-public class DonationProcessingTask extends TimerTask {
+public class DonationProcessingTask {
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    @Value("${fr.lesprojetscagnottes.core.donation.lanes}")
+    private int lanes;
+
+    @Value("${fr.lesprojetscagnottes.core.donation.batch.size}")
+    private int batchSize;
+
+    @Value("${fr.lesprojetscagnottes.core.donation.poll.interval}")
+    private long pollInterval;
+
+    private final DonationRepository donationRepository;
+
+    private final DonationOperationRepository donationOperationRepository;
+
+    private final DonationService donationService;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final MeterRegistry meterRegistry;
+
+    private final Object signal = new Object();
+
+    private ExecutorService executor;
+
+    private volatile boolean running = false;
 
     @Autowired
-    private DonationRepository donationRepository;
+    public DonationProcessingTask(DonationRepository donationRepository,
+                                  DonationOperationRepository donationOperationRepository,
+                                  DonationService donationService,
+                                  PlatformTransactionManager transactionManager,
+                                  MeterRegistry meterRegistry) {
+        this.donationRepository = donationRepository;
+        this.donationOperationRepository = donationOperationRepository;
+        this.donationService = donationService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        AtomicInteger threadNumber = new AtomicInteger(0);
+        executor = Executors.newFixedThreadPool(lanes, runnable -> {
+            Thread thread = new Thread(runnable, "DonationProcessingTask-" + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        Gauge.builder("donation.lanes", () -> lanes)
+                .description("Number of donation processing lanes")
+                .register(meterRegistry);
+        for (int k = 0; k < lanes; k++) {
+            Lane lane = new Lane(k);
+            executor.submit(() -> work(lane));
+        }
+        log.info("Donation processing started with {} lane(s) and batches of {}", lanes, batchSize);
+    }
 
-    Queue<DonationOperation> queue = new LinkedList<>();
+    @PreDestroy
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        wakeUp();
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
 
-    public void insert(DonationEntity donation, DonationOperationType type) {
-        queue.add(new DonationOperation(donation, type));
+    public DonationOperationEntity insert(DonationEntity donation, DonationOperationType type) {
+        return insert(donation, type, null);
     }
 
-    @Override
-    public void run() {
-        DonationOperation operation = queue.poll();
-        if(operation != null) {
-            DonationEntity donation = operation.getDonation();
-            switch (operation.getType()) {
-                case CREATION -> {
-                    log.info("Create donation : {}", donation);
-                    createDonation(donation);
+    public DonationOperationEntity insert(DonationEntity donation, DonationOperationType type, String idempotencyKey) {
+        DonationOperationEntity operation = new DonationOperationEntity();
+        operation.setType(type);
+        operation.setIdempotencyKey(idempotencyKey);
+        operation.setStatus(DonationOperationStatus.PENDING);
+        if (type == DonationOperationType.DELETION) {
+            operation.setDonationId(donation.getId());
+        }
+        operation.setAccountId(donation.getAccount().getId());
+        operation.setCampaignId(donation.getCampaign().getId());
+        operation.setAmount(donation.getAmount());
+        operation = donationOperationRepository.save(operation);
+
+        // Local workers are woken up once the operation is visible to them, other nodes will see it on their next poll
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    wakeUp();
                 }
-                case DELETION -> {
-                    log.info("Delete donation : {}", donation);
-                    deleteDonation(donation);
+            });
+        } else {
+            wakeUp();
+        }
+        return operation;
+    }
+
+    private void wakeUp() {
+        synchronized (signal) {
+            signal.notifyAll();
+        }
+    }
+
+    private void work(Lane lane) {
+        while (running) {
+            try {
+                if (processBatch(lane) == 0) {
+                    synchronized (signal) {
+                        signal.wait(pollInterval);
+                    }
                 }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("An error occured while processing donations : {}", e.getMessage());
             }
         }
     }
 
-    private void createDonation(DonationEntity donation) {
+    private int processBatch(Lane lane) {
+        List<Long> claimed = new ArrayList<>();
+        List<Long> rejected = new ArrayList<>();
+        long start = System.nanoTime();
         try {
-            if(!donationRepository.createDonation(donation.getAccount().getId(), donation.getCampaign().getId(), donation.getAmount())) {
-                log.error("An error occured while creating donation {}", donation);
+            // A lane is processed by a single transaction across all nodes, so that operations of an account keep their order
+            transactionTemplate.executeWithoutResult(status -> {
+                if (!donationOperationRepository.lockLane(lane.index)) {
+                    return;
+                }
+                List<DonationOperationEntity> batch = donationOperationRepository.claimPending(lanes, lane.index, batchSize);
+                batch.forEach(operation -> claimed.add(operation.getId()));
+                if (batch.isEmpty()) {
+                    sampleDepth(lane, 0);
+                    return;
+                }
+
+                // Consecutive operations of the same type are applied with a single call, so that arrival order is kept
+                int from = 0;
+                while (from < batch.size()) {
+                    int to = from + 1;
+                    while (to < batch.size() && batch.get(to).getType() == batch.get(from).getType()) {
+                        to++;
+                    }
+                    applyAll(batch.subList(from, to)).forEach(operation -> rejected.add(operation.getId()));
+                    from = to;
+                }
+
+                List<Long> applied = new ArrayList<>(claimed);
+                applied.removeAll(rejected);
+                updateStatus(applied, DonationOperationStatus.APPLIED);
+                updateStatus(rejected, DonationOperationStatus.REJECTED);
+                notifyFundings(applied);
+                sampleDepth(lane, batch.size());
+                if (!rejected.isEmpty()) {
+                    log.error("Donation operation(s) {} rejected", rejected);
+                }
+            });
+            if (!claimed.isEmpty()) {
+                lane.latency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                lane.applied.increment(claimed.size() - rejected.size());
+                lane.rejected.increment(rejected.size());
+                donationService.notifyOperationsProcessed(claimed);
+                log.debug("{} donation operation(s) processed on lane {}", claimed.size(), lane.index);
+            }
+        } catch (Exception e) {
+            // The whole batch was rolled back, so we replay it one by one and stop at the first operation left pending
+            log.warn("Batch of {} donation operation(s) rolled back, processing them one by one : {}", claimed.size(), e.getMessage());
+            for (Long id : claimed) {
+                if (!processOne(lane, id)) {
+                    break;
+                }
             }
-        } catch(Exception e) {
-            log.error(e.getMessage());
         }
+        return claimed.size();
     }
 
-    private void deleteDonation(DonationEntity donation) {
+    private boolean processOne(Lane lane, Long id) {
+        long start = System.nanoTime();
         try {
-            if(!donationRepository.deleteDonation(donation.getId())) {
-                log.error("An error occured while deleting donation {}", donation);
+            Boolean processed = transactionTemplate.execute(status -> {
+                if (!donationOperationRepository.lockLane(lane.index)) {
+                    return false;
+                }
+                donationOperationRepository.claimPending(id).ifPresent(operation -> {
+                    if (applyAll(List.of(operation)).isEmpty()) {
+                        updateStatus(List.of(id), DonationOperationStatus.APPLIED);
+                        notifyFundings(List.of(id));
+                        lane.applied.increment();
+                    } else {
+                        log.error("An error occured while processing {}", operation);
+                        updateStatus(List.of(id), DonationOperationStatus.REJECTED);
+                        lane.rejected.increment();
+                    }
+                });
+                return true;
+            });
+            if (!Boolean.TRUE.equals(processed)) {
+                return false;
+            }
+            lane.latency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            donationService.notifyOperationsProcessed(List.of(id));
+            return true;
+        } catch (ConcurrencyFailureException e) {
+            if (retry(id, e)) {
+                donationService.notifyOperationsProcessed(List.of(id));
+            }
+            return false;
+        } catch (Exception e) {
+            log.error("An error occured while processing donation operation {} : {}", id, e.getMessage());
+            transactionTemplate.executeWithoutResult(status -> updateStatus(List.of(id), DonationOperationStatus.REJECTED));
+            lane.rejected.increment();
+            donationService.notifyOperationsProcessed(List.of(id));
+            return true;
+        }
+    }
+
+    private boolean retry(Long id, Exception e) {
+        return Boolean.TRUE.equals(transactionTemplate.execute(status -> donationOperationRepository.claimPending(id).map(operation -> {
+            operation.setAttempts(operation.getAttempts() + 1);
+            if (operation.getAttempts() >= MAX_ATTEMPTS) {
+                log.error("Impossible to process {} : {}", operation, e.getMessage());
+                operation.setStatus(DonationOperationStatus.REJECTED);
+                return true;
+            }
+            log.warn("Retrying {} : {}", operation, e.getMessage());
+            return false;
+        }).orElse(false)));
+    }
+
+    // A lane claiming less than a batch is drained, a busy lane is only counted once per poll interval
+    private void sampleDepth(Lane lane, int claimed) {
+        long now = System.nanoTime();
+        if (claimed < batchSize) {
+            lane.depth.set(0);
+        } else if (now - lane.nextSample >= 0) {
+            lane.nextSample = now + TimeUnit.MILLISECONDS.toNanos(pollInterval);
+            lane.depth.set(donationOperationRepository.countPending(lanes, lane.index));
+        }
+    }
+
+    private void updateStatus(List<Long> ids, DonationOperationStatus status) {
+        if (!ids.isEmpty()) {
+            donationOperationRepository.updateStatus(ids, status);
+        }
+    }
+
+    private void notifyFundings(List<Long> applied) {
+        if (!applied.isEmpty()) {
+            donationOperationRepository.notifyFundings(applied);
+        }
+    }
+
+    private List<DonationOperationEntity> applyAll(List<DonationOperationEntity> operations) {
+        List<Boolean> applied = switch (operations.get(0).getType()) {
+            case CREATION -> {
+                log.info("Create {} donation(s)", operations.size());
+                yield donationRepository.createDonations(
+                        operations.stream().map(DonationOperationEntity::getAccountId).toArray(Long[]::new),
+                        operations.stream().map(DonationOperationEntity::getCampaignId).toArray(Long[]::new),
+                        operations.stream().map(DonationOperationEntity::getAmount).toArray(Float[]::new));
             }
-        } catch(Exception e) {
-            log.error(e.getMessage());
+            case DELETION -> {
+                log.info("Delete {} donation(s)", operations.size());
+                yield donationRepository.deleteDonations(
+                        operations.stream().map(DonationOperationEntity::getDonationId).toArray(Long[]::new));
+            }
+        };
+        List<DonationOperationEntity> rejected = new ArrayList<>();
+        for (int k = 0; k < operations.size(); k++) {
+            if (!Boolean.TRUE.equals(applied.get(k))) {
+                rejected.add(operations.get(k));
+            }
+        }
+        return rejected;
+    }
+
+    private class Lane {
+
+        private final int index;
+
+        private final Timer latency;
+
+        private final Counter applied;
+
+        private final Counter rejected;
+
+        // Sampled by the lane itself, so that scrapes never reach the database
+        private final AtomicLong depth = new AtomicLong();
+
+        private long nextSample = System.nanoTime();
+
+        private Lane(int index) {
+            this.index = index;
+            String tag = String.valueOf(index);
+            Gauge.builder("donation.lane.depth", depth, AtomicLong::get)
+                    .description("Pending donation operations of the lane")
+                    .tag("lane", tag)
+                    .register(meterRegistry);
+            this.latency = Timer.builder("donation.lane.latency")
+                    .description("Time spent applying a batch of donation operations")
+                    .tag("lane", tag)
+                    .register(meterRegistry);
+            this.applied = Counter.builder("donation.lane.operations")
+                    .tag("lane", tag)
+                    .tag("status", DonationOperationStatus.APPLIED.name())
+                    .register(meterRegistry);
+            this.rejected = Counter.builder("donation.lane.operations")
+                    .tag("lane", tag)
+                    .tag("status", DonationOperationStatus.REJECTED.name())
+                    .register(meterRegistry);
         }
     }
 
@@ -0,0 +1,150 @@
+package fr.lesprojetscagnottes.core.donation.task;
+
+import fr.lesprojetscagnottes.core.donation.entity.DonationReconciliationEntity;
+import fr.lesprojetscagnottes.core.donation.model.DonationMismatchType;
+import fr.lesprojetscagnottes.core.donation.model.DonationReconciliationStatus;
+import fr.lesprojetscagnottes.core.donation.repository.DonationReconciliationMismatchRepository;
+import fr.lesprojetscagnottes.core.donation.repository.DonationReconciliationRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+@Slf4j
+@Component
+public class DonationReconciliationTask {
+
+    // A running reconciliation that has not progressed for this long is considered dead
+    private static final long STALE_AFTER = TimeUnit.HOURS.toMillis(1);
+
+    @Value("${fr.lesprojetscagnottes.core.donation.operations.retention}")
+    private int operationsRetention;
+
+    private final DonationReconciliationRepository donationReconciliationRepository;
+
+    private final DonationReconciliationMismatchRepository donationReconciliationMismatchRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "DonationReconciliationTask");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Autowired
+    public DonationReconciliationTask(DonationReconciliationRepository donationReconciliationRepository,
+                                      DonationReconciliationMismatchRepository donationReconciliationMismatchRepository,
+                                      PlatformTransactionManager transactionManager) {
+        this.donationReconciliationRepository = donationReconciliationRepository;
+        this.donationReconciliationMismatchRepository = donationReconciliationMismatchRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    public DonationReconciliationEntity start(boolean incremental) {
+        List<DonationReconciliationEntity> started = new ArrayList<>();
+        DonationReconciliationEntity reconciliation = transactionTemplate.execute(status -> {
+
+            // Only one reconciliation runs at a time across all nodes
+            Date now = new Date();
+            if (!donationReconciliationRepository.lock()) {
+                return null;
+            }
+            Optional<DonationReconciliationEntity> running = donationReconciliationRepository
+                    .findFirstByStatusAndUpdatedAtGreaterThanOrderByStartedAtDesc(DonationReconciliationStatus.RUNNING, new Date(now.getTime() - STALE_AFTER));
+            if (running.isPresent()) {
+                log.info("Donation reconciliation {} is already running", running.get().getId());
+                return running.get();
+            }
+
+            // An incremental run relies on the donation operations journal, so it cannot look further back than its retention
+            Date since = null;
+            if (incremental) {
+                Date oldestJournaled = new Date(now.getTime() - TimeUnit.DAYS.toMillis(operationsRetention));
+                since = donationReconciliationRepository.findFirstByStatusOrderByStartedAtDesc(DonationReconciliationStatus.FINISHED)
+                        .map(DonationReconciliationEntity::getStartedAt)
+                        .filter(startedAt -> startedAt.after(oldestJournaled))
+                        .orElse(null);
+            }
+
+            DonationReconciliationEntity entity = new DonationReconciliationEntity();
+            entity.setIncremental(since != null);
+            entity.setSince(since);
+            entity.setStatus(DonationReconciliationStatus.RUNNING);
+            entity.setStartedAt(now);
+            entity = donationReconciliationRepository.save(entity);
+            started.add(entity);
+            return entity;
+        });
+        if (reconciliation == null) {
+            log.info("Donation reconciliation is already being started by another node");
+        }
+        started.forEach(entity -> executor.submit(() -> run(entity.getId())));
+        return reconciliation;
+    }
+
+    private void run(long id) {
+        DonationReconciliationEntity reconciliation = donationReconciliationRepository.findById(id).orElseThrow();
+        boolean full = !reconciliation.isIncremental();
+        Date since = reconciliation.getSince();
+        log.info("Donation reconciliation {} started ({})", id, full ? "full" : "since " + since);
+
+        Map<DonationMismatchType, Check> checks = new LinkedHashMap<>();
+        checks.put(DonationMismatchType.MISSING_ACCOUNT, () -> donationReconciliationMismatchRepository.insertMissingAccounts(id, full, since));
+        checks.put(DonationMismatchType.ACCOUNT_INITIAL_AMOUNT, () -> donationReconciliationMismatchRepository.insertAccountInitialAmounts(id, full, since));
+        checks.put(DonationMismatchType.ACCOUNT_AMOUNT, () -> donationReconciliationMismatchRepository.insertAccountAmounts(id, full, since));
+        checks.put(DonationMismatchType.BUDGET_TOTAL, () -> donationReconciliationMismatchRepository.insertBudgetTotals(id, full, since));
+        checks.put(DonationMismatchType.CAMPAIGN_TOTAL, () -> donationReconciliationMismatchRepository.insertCampaignTotals(id, full, since));
+
+        try {
+            // Each check is committed on its own, so that the report can be read while the reconciliation goes on
+            checks.forEach((type, check) -> {
+                Integer mismatches = transactionTemplate.execute(status -> {
+                    int found = check.run();
+                    DonationReconciliationEntity entity = donationReconciliationRepository.findById(id).orElseThrow();
+                    entity.setMismatches(entity.getMismatches() + found);
+                    return found;
+                });
+                if (mismatches != null && mismatches > 0) {
+                    log.error("Donation reconciliation {} : {} {} mismatch(es)", id, mismatches, type);
+                }
+            });
+            finish(id, DonationReconciliationStatus.FINISHED);
+        } catch (Exception e) {
+            log.error("Donation reconciliation {} failed : {}", id, e.getMessage());
+            finish(id, DonationReconciliationStatus.FAILED);
+        }
+    }
+
+    private void finish(long id, DonationReconciliationStatus status) {
+        transactionTemplate.executeWithoutResult(transaction -> {
+            DonationReconciliationEntity entity = donationReconciliationRepository.findById(id).orElseThrow();
+            entity.setStatus(status);
+            entity.setFinishedAt(new Date());
+            log.info("Donation reconciliation {} {} with {} mismatch(es)", id, status, entity.getMismatches());
+        });
+    }
+
+    private interface Check {
+        int run();
+    }
+
+}
@@ -3,6 +3,7 @@ package fr.lesprojetscagnottes.core.news.controller;
 import fr.lesprojetscagnottes.core.common.exception.BadRequestException;
 import fr.lesprojetscagnottes.core.common.exception.ForbiddenException;
 import fr.lesprojetscagnottes.core.common.exception.NotFoundException;
+import fr.lesprojetscagnottes.core.common.service.BatchLoaderService;
 import fr.lesprojetscagnottes.core.news.entity.NewsEntity;
 import fr.lesprojetscagnottes.core.news.model.NewsModel;
 import fr.lesprojetscagnottes.core.news.model.NewsType;
@@ -45,6 +46,9 @@ public class NewsController {
     @Autowired
     private NewsRepository newsRepository;
 
+    @Autowired
+    private BatchLoaderService batchLoaderService;
+
     @Autowired
     private ProjectRepository projectRepository;
 
@@ -105,18 +109,11 @@ public class NewsController {
         boolean userLoggedIn_isNotAdmin = userService.isNotAdmin(userLoggedInId);
         Set<NewsModel> models = new LinkedHashSet<>();
 
-        for(Long id : ids) {
-
-            // Retrieve full referenced objects
-            NewsEntity news = newsRepository.findById(id).orElse(null);
-            if(news == null) {
-                log.error("Impossible to get news {} : it doesn't exist", id);
-                continue;
-            }
+        for(NewsEntity news : batchLoaderService.load("news", ids, newsRepository::findAllById)) {
 
             // Verify that principal is member of organization
-            if(userService.isMemberOfOrganization(userLoggedInId, news.getOrganization().getId()) && userLoggedIn_isNotAdmin) {
-                log.error("Impossible to get news {} : {} is not member of organization {}", id, userLoggedInId, news.getOrganization().getId());
+            if(news.getOrganization() != null && !userService.isMemberOfOrganization(userLoggedInId, news.getOrganization().getId()) && userLoggedIn_isNotAdmin) {
+                log.error("Impossible to get news {} : {} is not member of organization {}", news.getId(), userLoggedInId, news.getOrganization().getId());
                 throw new ForbiddenException();
             }
 
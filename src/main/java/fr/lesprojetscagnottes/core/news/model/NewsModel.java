@@ -10,6 +10,8 @@ import lombok.Setter;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotNull;
 
+import java.util.Date;
+
 @Getter(AccessLevel.PUBLIC)
 @Setter(AccessLevel.PUBLIC)
 @MappedSuperclass
@@ -38,6 +40,24 @@ public class NewsModel extends AuditEntity<String> {
     @Transient
     protected GenericModel project;
 
+    public NewsModel() {}
+
+    // Summary of a news, without its content
+    public NewsModel(Long id, Date createdAt, String createdBy, Date updatedAt, String updatedBy, NewsType type, String title,
+                     String workspace, Long authorId, Long organizationId, Long projectId) {
+        setId(id);
+        setCreatedAt(createdAt);
+        setCreatedBy(createdBy);
+        setUpdatedAt(updatedAt);
+        setUpdatedBy(updatedBy);
+        this.type = type;
+        this.title = title;
+        this.workspace = workspace;
+        this.author = new GenericModel(authorId);
+        this.organization = new GenericModel(organizationId);
+        this.project = new GenericModel(projectId);
+    }
+
     public static NewsModel fromEntity(NewsEntity entity) {
         NewsModel model = new NewsModel();
         model.setCreatedAt(entity.getCreatedAt());
@@ -1,17 +1,40 @@
 package fr.lesprojetscagnottes.core.news.repository;
 
 import fr.lesprojetscagnottes.core.news.entity.NewsEntity;
+import fr.lesprojetscagnottes.core.news.model.NewsModel;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.sql.Timestamp;
 import java.util.Date;
 
 public interface NewsRepository extends JpaRepository<NewsEntity, Long> {
 
-    Page<NewsEntity> findAllByOrganizationIdOrOrganizationIdIsNull(Long organizationId, Pageable pageable);
+    String SUMMARY = "select new fr.lesprojetscagnottes.core.news.model.NewsModel(n.id, n.createdAt, n.createdBy, n.updatedAt, n.updatedBy, " +
+            "n.type, n.title, n.workspace, n.author.id, n.organization.id, n.project.id) from NewsEntity n ";
 
-    Page<NewsEntity> findAllByProjectId(Long id, Pageable pageable);
+    // Without cursor, the first page starts before this date, so that the keyset bound is always usable by an index
+    Date LATEST = Timestamp.valueOf("9999-12-31 23:59:59");
+
+    String AFTER = "and (n.createdAt, n.id) < (:createdAt, :after) order by n.createdAt desc, n.id desc";
+
+    @Query(value = SUMMARY + "where n.organization.id = :id or n.organization.id is null",
+            countQuery = "select count(n) from NewsEntity n where n.organization.id = :id or n.organization.id is null")
+    Page<NewsModel> findAllSummariesByOrganizationIdOrOrganizationIdIsNull(@Param("id") Long organizationId, Pageable pageable);
+
+    @Query(SUMMARY + "where (n.organization.id = :id or n.organization.id is null) " + AFTER)
+    Slice<NewsModel> findAllSummariesByOrganizationIdOrOrganizationIdIsNullAfter(@Param("id") Long organizationId, @Param("createdAt") Date createdAt, @Param("after") long after, Pageable pageable);
+
+    @Query(value = SUMMARY + "where n.project.id = :id",
+            countQuery = "select count(n) from NewsEntity n where n.project.id = :id")
+    Page<NewsModel> findAllSummariesByProjectId(@Param("id") Long id, Pageable pageable);
+
+    @Query(SUMMARY + "where n.project.id = :id " + AFTER)
+    Slice<NewsModel> findAllSummariesByProjectIdAfter(@Param("id") Long id, @Param("createdAt") Date createdAt, @Param("after") long after, Pageable pageable);
 
     NewsEntity findFirstByProjectIdAndCreatedAtGreaterThanOrderByCreatedAtDesc(Long id, Date createdAt);
 }
\ No newline at end of file
@@ -3,6 +3,7 @@ package fr.lesprojetscagnottes.core.news.service;
 import fr.lesprojetscagnottes.core.common.exception.BadRequestException;
 import fr.lesprojetscagnottes.core.common.exception.ForbiddenException;
 import fr.lesprojetscagnottes.core.common.exception.NotFoundException;
+import fr.lesprojetscagnottes.core.common.pagination.DataCursor;
 import fr.lesprojetscagnottes.core.common.pagination.DataPage;
 import fr.lesprojetscagnottes.core.news.entity.NewsEntity;
 import fr.lesprojetscagnottes.core.news.model.NewsModel;
@@ -15,8 +16,8 @@ import fr.lesprojetscagnottes.core.project.service.ProjectService;
 import fr.lesprojetscagnottes.core.user.entity.UserEntity;
 import fr.lesprojetscagnottes.core.user.service.UserService;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 
@@ -44,7 +45,7 @@ public class NewsService {
     }
 
 
-    public DataPage<NewsModel> listByProjects_Id(Principal principal, Long id, int offset, int limit) {
+    public DataPage<NewsModel> listByProjects_Id(Principal principal, Long id, int offset, int limit, String after) {
 
         // Verify that IDs are corrects
         if (id <= 0) {
@@ -66,10 +67,13 @@ public class NewsService {
             throw new ForbiddenException();
         }
 
-        // Get and transform entities
-        Page<NewsEntity> entities = newsRepository.findAllByProjectId(id, PageRequest.of(offset, limit, Sort.by("createdAt").descending()));
-        DataPage<NewsModel> models = new DataPage<>(entities);
-        entities.getContent().forEach(entity -> models.getContent().add(NewsModel.fromEntity(entity)));
+        // Get summaries, contents are only returned by detail endpoints
+        DataCursor cursor = after != null ? DataCursor.decode(after, NewsRepository.LATEST, Long.MAX_VALUE) : null;
+        Slice<NewsModel> summaries = cursor != null
+                ? newsRepository.findAllSummariesByProjectIdAfter(id, cursor.getDate(0), cursor.getLong(1), PageRequest.of(0, limit))
+                : newsRepository.findAllSummariesByProjectId(id, PageRequest.of(offset, limit, Sort.by("createdAt").descending().and(Sort.by("id").descending())));
+        DataPage<NewsModel> models = new DataPage<>(summaries, news -> DataCursor.encode(news.getCreatedAt(), news.getId()));
+        models.getContent().addAll(summaries.getContent());
         return models;
     }
 
@@ -8,23 +8,26 @@ import fr.lesprojetscagnottes.core.authorization.repository.OrganizationAuthorit
 import fr.lesprojetscagnottes.core.budget.entity.BudgetEntity;
 import fr.lesprojetscagnottes.core.budget.model.BudgetModel;
 import fr.lesprojetscagnottes.core.budget.repository.BudgetRepository;
+import fr.lesprojetscagnottes.core.campaign.model.CampaignFundingModel;
+import fr.lesprojetscagnottes.core.campaign.service.CampaignStreamService;
 import fr.lesprojetscagnottes.core.common.exception.BadRequestException;
 import fr.lesprojetscagnottes.core.common.exception.ForbiddenException;
 import fr.lesprojetscagnottes.core.common.exception.NotFoundException;
+import fr.lesprojetscagnottes.core.common.pagination.DataCursor;
 import fr.lesprojetscagnottes.core.common.pagination.DataPage;
+import fr.lesprojetscagnottes.core.common.service.BatchLoaderService;
 import fr.lesprojetscagnottes.core.content.entity.ContentEntity;
 import fr.lesprojetscagnottes.core.content.model.ContentModel;
 import fr.lesprojetscagnottes.core.content.repository.ContentRepository;
-import fr.lesprojetscagnottes.core.news.entity.NewsEntity;
 import fr.lesprojetscagnottes.core.news.model.NewsModel;
 import fr.lesprojetscagnottes.core.news.repository.NewsRepository;
 import fr.lesprojetscagnottes.core.organization.entity.OrganizationEntity;
 import fr.lesprojetscagnottes.core.organization.model.OrganizationModel;
 import fr.lesprojetscagnottes.core.organization.repository.OrganizationRepository;
-import fr.lesprojetscagnottes.core.project.entity.ProjectEntity;
 import fr.lesprojetscagnottes.core.project.model.ProjectModel;
 import fr.lesprojetscagnottes.core.project.model.ProjectStatus;
 import fr.lesprojetscagnottes.core.project.repository.ProjectRepository;
+import fr.lesprojetscagnottes.core.project.service.ProjectService;
 import fr.lesprojetscagnottes.core.user.entity.UserEntity;
 import fr.lesprojetscagnottes.core.user.model.UserModel;
 import fr.lesprojetscagnottes.core.user.repository.UserRepository;
@@ -41,11 +44,13 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import jakarta.validation.Valid;
 import java.security.Principal;
@@ -69,30 +74,42 @@ public class OrganizationController {
 
     private final ProjectRepository projectRepository;
 
+    private final ProjectService projectService;
+
     private final UserRepository userRepository;
 
     private final AccountService accountService;
 
+    private final CampaignStreamService campaignStreamService;
+
     private final UserService userService;
 
+    private final BatchLoaderService batchLoaderService;
+
     @Autowired
     public OrganizationController(
             AccountService accountService,
+            BatchLoaderService batchLoaderService,
             BudgetRepository budgetRepository,
+            CampaignStreamService campaignStreamService,
             ContentRepository contentRepository,
             NewsRepository newsRepository,
             OrganizationAuthorityRepository organizationAuthorityRepository,
             OrganizationRepository organizationRepository,
             ProjectRepository projectRepository,
+            ProjectService projectService,
             UserRepository userRepository,
             UserService userService) {
         this.accountService = accountService;
+        this.batchLoaderService = batchLoaderService;
         this.budgetRepository = budgetRepository;
+        this.campaignStreamService = campaignStreamService;
         this.contentRepository = contentRepository;
         this.newsRepository = newsRepository;
         this.organizationAuthorityRepository = organizationAuthorityRepository;
         this.organizationRepository = organizationRepository;
         this.projectRepository = projectRepository;
+        this.projectService = projectService;
         this.userRepository = userRepository;
         this.userService = userService;
     }
@@ -190,21 +207,13 @@ public class OrganizationController {
 
         Long userLoggedInId = userService.get(principal).getId();
         boolean userLoggedIn_isNotAdmin = userService.isNotAdmin(userLoggedInId);
-        Set<OrganizationEntity> userLoggedInOrganizations = organizationRepository.findAllByMembers_Id(userLoggedInId);
         Set<OrganizationModel> models = new LinkedHashSet<>();
 
-        for (Long id : ids) {
-
-            // Retrieve full referenced objects
-            OrganizationEntity entity = organizationRepository.findById(id).orElse(null);
-            if (entity == null) {
-                log.error("Impossible to get organization {} : it doesn't exist", id);
-                continue;
-            }
+        for (OrganizationEntity entity : batchLoaderService.load("organization", ids, organizationRepository::findAllById)) {
 
             // Verify that principal share an organization with the user
-            if (!userLoggedInOrganizations.contains(entity) && userLoggedIn_isNotAdmin) {
-                log.error("Impossible to get organization {} : principal {} is not in it", id, userLoggedInId);
+            if (!userService.isMemberOfOrganization(userLoggedInId, entity.getId()) && userLoggedIn_isNotAdmin) {
+                log.error("Impossible to get organization {} : principal {} is not in it", entity.getId(), userLoggedInId);
                 continue;
             }
 
@@ -311,15 +320,19 @@ public class OrganizationController {
         organization = organizationRepository.save(organization);
 
         // Create authorities
+        List<OrganizationAuthorityEntity> organizationAuthorities = new ArrayList<>();
         for (OrganizationAuthorityName authorityName : OrganizationAuthorityName.values()) {
-            organizationAuthorityRepository.save(new OrganizationAuthorityEntity(organization, authorityName));
+            organizationAuthorities.add(new OrganizationAuthorityEntity(organization, authorityName));
         }
+        organizationAuthorities = organizationAuthorityRepository.saveAll(organizationAuthorities);
 
         // Grant principal with ROLE_OWNER
         UserEntity userLoggedIn = userService.get(principal);
-        OrganizationAuthorityEntity organizationAuthority = organizationAuthorityRepository.findByOrganizationIdAndName(organization.getId(), OrganizationAuthorityName.ROLE_OWNER);
-        userLoggedIn.getUserOrganizationAuthorities().add(organizationAuthority);
+        organizationAuthorities.stream()
+                .filter(organizationAuthority -> organizationAuthority.getName() == OrganizationAuthorityName.ROLE_OWNER)
+                .forEach(userLoggedIn.getUserOrganizationAuthorities()::add);
         userRepository.save(userLoggedIn);
+        userService.evict(userLoggedIn.getId());
 
         return OrganizationModel.fromEntity(organization);
     }
@@ -389,7 +402,10 @@ public class OrganizationController {
         }
 
         // Delete donation
+        Set<Long> memberIds = new LinkedHashSet<>();
+        organization.getMembers().forEach(member -> memberIds.add(member.getId()));
         organizationRepository.deleteById(id);
+        memberIds.forEach(userService::evict);
     }
 
     @Operation(summary = "Get members of an organization", description = "Get members of an organization", tags = {"Organizations"})
@@ -401,7 +417,7 @@ public class OrganizationController {
     })
     @PreAuthorize("hasRole('USER')")
     @RequestMapping(value = "/organization/{id}/members", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
-    public DataPage<UserModel> getMembers(Principal principal, @PathVariable("id") long id, @RequestParam(name = "offset", defaultValue = "0") int offset, @RequestParam(name = "limit", defaultValue = "10") int limit) {
+    public DataPage<UserModel> getMembers(Principal principal, @PathVariable("id") long id, @RequestParam(name = "offset", defaultValue = "0") int offset, @RequestParam(name = "limit", defaultValue = "10") int limit, @RequestParam(name = "after", required = false) String after) {
 
         // Verify that ID is correct
         if (id <= 0) {
@@ -423,10 +439,12 @@ public class OrganizationController {
             throw new ForbiddenException();
         }
 
-        // Get and transform users
-        Pageable pageable = PageRequest.of(offset, limit, Sort.by("firstname").ascending().and(Sort.by("lastname").ascending()));
-        Page<UserEntity> entities = userRepository.findAllByOrganizations_id(id, pageable);
-        DataPage<UserModel> models = new DataPage<>(entities);
+        // Get and transform users, starting after the cursor when one is given
+        DataCursor cursor = after != null ? DataCursor.decode(after, "", "", 0L) : null;
+        Slice<UserEntity> entities = cursor != null
+                ? userRepository.findAllByOrganizationIdAfter(id, cursor.getString(0), cursor.getString(1), cursor.getLong(2), PageRequest.of(0, limit))
+                : userRepository.findAllByOrganizationId(id, PageRequest.of(offset, limit));
+        DataPage<UserModel> models = new DataPage<>(entities, user -> DataCursor.encode(Objects.toString(user.getFirstname(), ""), Objects.toString(user.getLastname(), ""), user.getId()));
         entities.getContent().forEach(entity -> models.getContent().add(UserModel.fromEntity(entity)));
         return models;
     }
@@ -475,6 +493,7 @@ public class OrganizationController {
                         () -> {
                             organization.getMembers().add(user);
                             organizationRepository.save(organization);
+                            userService.evict(user.getId());
                             log.info("User {} is now a member of organization {}", user.getId(), organization.getId());
                         }
                 );
@@ -525,6 +544,7 @@ public class OrganizationController {
         // Remove member from organization
         organization.getMembers().remove(user);
         organizationRepository.save(organization);
+        userService.evict(user.getId());
         log.info("User {} has been removed from organization {}", user.getId(), organization.getId());
     }
 
@@ -563,17 +583,18 @@ public class OrganizationController {
         // Get corresponding entities according to principal
         Long userLoggedInId = userService.get(principal).getId();
         Pageable pageable = PageRequest.of(offset, limit, Sort.by("title").ascending().and(Sort.by("status").ascending()));
-        Page<ProjectEntity> entities;
+        Page<ProjectModel> summaries;
         boolean isNotAdmin = userService.isNotAdmin(userLoggedInId);
         if (isNotAdmin) {
-            entities = projectRepository.findAllByOrganizationIdAndStatusIn(id, status, pageable);
+            summaries = projectRepository.findAllSummariesByOrganizationIdAndStatusIn(id, status, pageable);
         } else {
-            entities = projectRepository.findAllByStatusIn(status, pageable);
+            summaries = projectRepository.findAllSummariesByStatusIn(status, pageable);
         }
 
-        // Convert and return data
-        DataPage<ProjectModel> models = new DataPage<>(entities);
-        entities.getContent().forEach(entity -> models.getContent().add(ProjectModel.fromEntity(entity)));
+        // Long descriptions are only returned by detail endpoints
+        DataPage<ProjectModel> models = new DataPage<>(summaries);
+        models.getContent().addAll(summaries.getContent());
+        projectService.loadRefs(models.getContent());
         return models;
     }
 
@@ -585,8 +606,8 @@ public class OrganizationController {
             @ApiResponse(responseCode = "404", description = "Budget not found", content = @Content(schema = @Schema()))
     })
     @PreAuthorize("hasRole('USER')")
-    @RequestMapping(value = "/organization/{id}/news", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE, params = {"offset", "limit"})
-    public DataPage<NewsModel> listNews(Principal principal, @PathVariable("id") Long id, @RequestParam("offset") int offset, @RequestParam("limit") int limit) {
+    @RequestMapping(value = "/organization/{id}/news", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE, params = {"limit"})
+    public DataPage<NewsModel> listNews(Principal principal, @PathVariable("id") Long id, @RequestParam(name = "offset", defaultValue = "0") int offset, @RequestParam("limit") int limit, @RequestParam(name = "after", required = false) String after) {
 
         // Verify that IDs are corrects
         if (id <= 0) {
@@ -608,13 +629,49 @@ public class OrganizationController {
             throw new ForbiddenException();
         }
 
-        // Get and transform donations
-        Page<NewsEntity> entities = newsRepository.findAllByOrganizationIdOrOrganizationIdIsNull(id, PageRequest.of(offset, limit, Sort.by("createdAt").descending()));
-        DataPage<NewsModel> models = new DataPage<>(entities);
-        entities.getContent().forEach(entity -> models.getContent().add(NewsModel.fromEntity(entity)));
+        // Get summaries, contents are only returned by detail endpoints
+        DataCursor cursor = after != null ? DataCursor.decode(after, NewsRepository.LATEST, Long.MAX_VALUE) : null;
+        Slice<NewsModel> summaries = cursor != null
+                ? newsRepository.findAllSummariesByOrganizationIdOrOrganizationIdIsNullAfter(id, cursor.getDate(0), cursor.getLong(1), PageRequest.of(0, limit))
+                : newsRepository.findAllSummariesByOrganizationIdOrOrganizationIdIsNull(id, PageRequest.of(offset, limit, Sort.by("createdAt").descending().and(Sort.by("id").descending())));
+        DataPage<NewsModel> models = new DataPage<>(summaries, news -> DataCursor.encode(news.getCreatedAt(), news.getId()));
+        models.getContent().addAll(summaries.getContent());
         return models;
     }
 
+    @Operation(summary = "Stream funding of organization campaigns", description = "Stream donation total and count deltas of the campaigns of an organization as Server-Sent Events named funding", tags = {"Organizations"})
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Stream of funding deltas", content = @io.swagger.v3.oas.annotations.media.Content(mediaType = MediaType.TEXT_EVENT_STREAM_VALUE, schema = @Schema(implementation = CampaignFundingModel.class))),
+            @ApiResponse(responseCode = "400", description = "ID is incorrect", content = @io.swagger.v3.oas.annotations.media.Content(schema = @Schema())),
+            @ApiResponse(responseCode = "403", description = "Principal has not enough privileges", content = @io.swagger.v3.oas.annotations.media.Content(schema = @Schema())),
+            @ApiResponse(responseCode = "404", description = "Organization not found", content = @io.swagger.v3.oas.annotations.media.Content(schema = @Schema()))
+    })
+    @PreAuthorize("hasRole('USER')")
+    @RequestMapping(value = "/organization/{id}/campaigns/stream", method = RequestMethod.GET, produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamCampaigns(Principal principal, @PathVariable("id") long id) {
+
+        // Verify that IDs are corrects
+        if (id <= 0) {
+            log.error("Impossible to stream campaigns : parameters are incorrect");
+            throw new BadRequestException();
+        }
+
+        // Verify that organization exists
+        if (!organizationRepository.existsById(id)) {
+            log.error("Impossible to stream campaigns : organization not found");
+            throw new NotFoundException();
+        }
+
+        // Verify if principal has correct privileges
+        Long userLoggedInId = userService.get(principal).getId();
+        if (!userService.isMemberOfOrganization(userLoggedInId, id) && userService.isNotAdmin(userLoggedInId)) {
+            log.error("Impossible to stream campaigns : principal is not a member of organization {}", id);
+            throw new ForbiddenException();
+        }
+
+        return campaignStreamService.subscribeOrganization(id);
+    }
+
     @Operation(summary = "Get organization authorities", description = "Get organization authorities", tags = {"Organizations"})
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Return all organization authorities", content = @io.swagger.v3.oas.annotations.media.Content(array = @ArraySchema(schema = @Schema(implementation = OrganizationAuthorityModel.class)))),
@@ -684,11 +741,11 @@ public class OrganizationController {
             throw new ForbiddenException();
         }
 
-        // Get and transform contents
+        // Get summaries, values are only returned by detail endpoints
         Pageable pageable = PageRequest.of(offset, limit, Sort.by("name").ascending());
-        Page<ContentEntity> entities = contentRepository.findAllByOrganizationId(pageable, id);
-        DataPage<ContentModel> models = new DataPage<>(entities);
-        entities.getContent().forEach(entity -> models.getContent().add(ContentModel.fromEntity(entity)));
+        Page<ContentModel> summaries = contentRepository.findAllSummariesByOrganizationId(pageable, id);
+        DataPage<ContentModel> models = new DataPage<>(summaries);
+        models.getContent().addAll(summaries.getContent());
         return models;
     }
 
@@ -68,9 +68,9 @@ public class ProjectController {
             @ApiResponse(responseCode = "404", description = "Budget not found", content = @Content(schema = @Schema()))
     })
     @PreAuthorize("hasRole('USER')")
-    @RequestMapping(value = "/project/{id}/news", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE, params = {"offset", "limit"})
-    public DataPage<NewsModel> listNews(Principal principal, @PathVariable("id") Long id, @RequestParam("offset") int offset, @RequestParam("limit") int limit) {
-        return newsService.listByProjects_Id(principal, id, offset, limit);
+    @RequestMapping(value = "/project/{id}/news", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE, params = {"limit"})
+    public DataPage<NewsModel> listNews(Principal principal, @PathVariable("id") Long id, @RequestParam(name = "offset", defaultValue = "0") int offset, @RequestParam("limit") int limit, @RequestParam(name = "after", required = false) String after) {
+        return newsService.listByProjects_Id(principal, id, offset, limit, after);
     }
 
     @Operation(summary = "Get teammates", description = "Get teammates of a project", tags = { "Projects" })
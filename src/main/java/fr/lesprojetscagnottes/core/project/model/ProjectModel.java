@@ -67,6 +67,31 @@ public class ProjectModel extends AuditEntity<String> {
     @Transient
     private Set<Long> newsRef = new LinkedHashSet<>();
 
+    public ProjectModel() {}
+
+    // Summary of a project, without its long description
+    public ProjectModel(Long id, Date createdAt, String createdBy, Date updatedAt, String updatedBy, String title, ProjectStatus status,
+                        Boolean isPublished, Boolean ideaHasAnonymousCreator, Boolean ideaHasLeaderCreator, Date lastStatusUpdate,
+                        String shortDescription, Integer peopleRequired, String workspace, Long leaderId, Long organizationId) {
+        setId(id);
+        setCreatedAt(createdAt);
+        setCreatedBy(createdBy);
+        setUpdatedAt(updatedAt);
+        setUpdatedBy(updatedBy);
+        this.title = title;
+        this.status = status;
+        this.isPublished = isPublished;
+        this.ideaHasAnonymousCreator = ideaHasAnonymousCreator;
+        this.ideaHasLeaderCreator = ideaHasLeaderCreator;
+        this.lastStatusUpdate = lastStatusUpdate;
+        this.shortDescription = shortDescription;
+        this.longDescription = null;
+        this.peopleRequired = peopleRequired;
+        this.workspace = workspace;
+        this.leader = new GenericModel(leaderId);
+        this.organization = new GenericModel(organizationId);
+    }
+
     public static ProjectModel fromEntity(ProjectEntity entity) {
         ProjectModel model = new ProjectModel();
         model.setCreatedAt(entity.getCreatedAt());
@@ -1,17 +1,25 @@
 package fr.lesprojetscagnottes.core.project.repository;
 
 import fr.lesprojetscagnottes.core.project.entity.ProjectEntity;
+import fr.lesprojetscagnottes.core.project.model.ProjectModel;
 import fr.lesprojetscagnottes.core.project.model.ProjectStatus;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.Date;
+import java.util.List;
 import java.util.Set;
 
 public interface ProjectRepository extends JpaRepository<ProjectEntity, Long> {
 
+    String SUMMARY = "select new fr.lesprojetscagnottes.core.project.model.ProjectModel(p.id, p.createdAt, p.createdBy, p.updatedAt, p.updatedBy, " +
+            "p.title, p.status, p.isPublished, p.ideaHasAnonymousCreator, p.ideaHasLeaderCreator, p.lastStatusUpdate, p.shortDescription, " +
+            "p.peopleRequired, p.workspace, p.leader.id, p.organization.id) from ProjectEntity p ";
+
     Page<ProjectEntity> findAll(Pageable pageable);
 
     Set<ProjectEntity> findAllByLeaderId(Long memberId);
@@ -20,13 +28,30 @@ public interface ProjectRepository extends JpaRepository<ProjectEntity, Long> {
 
     Set<ProjectEntity> findAllByStatusInAndLastStatusUpdateLessThan(Set<ProjectStatus> status, Date lastStatusUpdate);
 
-    Page<ProjectEntity> findAllByStatusIn(Set<ProjectStatus> status, Pageable pageable);
+    @Query(value = SUMMARY + "where p.status in :status",
+            countQuery = "select count(p) from ProjectEntity p where p.status in :status")
+    Page<ProjectModel> findAllSummariesByStatusIn(@Param("status") Set<ProjectStatus> status, Pageable pageable);
+
+    @Query(value = SUMMARY + "where p.organization.id = :id and p.status in :status",
+            countQuery = "select count(p) from ProjectEntity p where p.organization.id = :id and p.status in :status")
+    Page<ProjectModel> findAllSummariesByOrganizationIdAndStatusIn(@Param("id") Long id, @Param("status") Set<ProjectStatus> status, Pageable pageable);
+
+    // Pairs of project ID and referenced ID
+    @Query("select c.project.id, c.id from CampaignEntity c where c.project.id in :ids")
+    List<Object[]> findAllCampaignIdsByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("select p.id, m.id from ProjectEntity p join p.peopleGivingTime m where p.id in :ids")
+    List<Object[]> findAllPeopleGivingTimeIdsByIdIn(@Param("ids") Collection<Long> ids);
 
-    Page<ProjectEntity> findAllByOrganizationIdAndStatusIn(Long id, Set<ProjectStatus> status, Pageable pageable);
+    @Query("select n.project.id, n.id from NewsEntity n where n.project.id in :ids")
+    List<Object[]> findAllNewsIdsByIdIn(@Param("ids") Collection<Long> ids);
 
+    // Votes are read from the maintained project scores, ideas never voted have no score yet
     @Query(
-            value = "select p.* from votes v right outer join projects p on p.id = v.project_id where p.status = 'IDEA' group by p.id order by count(v.*) asc limit 1",
+            value = "select distinct on (p.organization_id) p.* from projects p left join project_scores s on s.project_id = p.id " +
+                    "where p.status = 'IDEA' and p.organization_id is not null " +
+                    "order by p.organization_id, coalesce(s.up + s.down, 0) asc, p.id asc",
             nativeQuery = true)
-    ProjectEntity findLessVotedIdea();
+    List<ProjectEntity> findLessVotedIdeaOfEachOrganization();
 
 }
@@ -3,6 +3,7 @@ package fr.lesprojetscagnottes.core.project.service;
 import fr.lesprojetscagnottes.core.common.exception.BadRequestException;
 import fr.lesprojetscagnottes.core.common.exception.ForbiddenException;
 import fr.lesprojetscagnottes.core.common.exception.NotFoundException;
+import fr.lesprojetscagnottes.core.common.service.BatchLoaderService;
 import fr.lesprojetscagnottes.core.notification.model.NotificationName;
 import fr.lesprojetscagnottes.core.notification.service.NotificationService;
 import fr.lesprojetscagnottes.core.organization.entity.OrganizationEntity;
@@ -37,22 +38,45 @@ public class ProjectService {
 
     private final ProjectRepository projectRepository;
 
+    private final BatchLoaderService batchLoaderService;
+
     @Autowired
     public ProjectService(
             NotificationService notificationService,
             OrganizationService organizationService,
             UserService userService,
-            ProjectRepository projectRepository) {
+            ProjectRepository projectRepository,
+            BatchLoaderService batchLoaderService) {
         this.notificationService = notificationService;
         this.organizationService = organizationService;
         this.userService = userService;
         this.projectRepository = projectRepository;
+        this.batchLoaderService = batchLoaderService;
     }
 
     public ProjectEntity findById(Long id) {
         return projectRepository.findById(id).orElse(null);
     }
 
+    public List<ProjectEntity> findAllByIds(Collection<Long> ids) {
+        return projectRepository.findAllById(ids);
+    }
+
+    // Summaries are built without entities, so their references are loaded at once for the whole list
+    public void loadRefs(List<ProjectModel> models) {
+        if (models.isEmpty()) {
+            return;
+        }
+        Map<Long, ProjectModel> modelsById = new HashMap<>();
+        models.forEach(model -> modelsById.put(model.getId(), model));
+        projectRepository.findAllCampaignIdsByIdIn(modelsById.keySet())
+                .forEach(ids -> modelsById.get((Long) ids[0]).getCampaignsRef().add((Long) ids[1]));
+        projectRepository.findAllPeopleGivingTimeIdsByIdIn(modelsById.keySet())
+                .forEach(ids -> modelsById.get((Long) ids[0]).getPeopleGivingTimeRef().add((Long) ids[1]));
+        projectRepository.findAllNewsIdsByIdIn(modelsById.keySet())
+                .forEach(ids -> modelsById.get((Long) ids[0]).getNewsRef().add((Long) ids[1]));
+    }
+
     public ProjectModel findById(Principal principal, Long id) {
 
         // Verify that ID is correct
@@ -83,22 +107,13 @@ public class ProjectService {
 
         Long userLoggedInId = userService.get(principal).getId();
         boolean userLoggedIn_isNotAdmin = userService.isNotAdmin(userLoggedInId);
-        Set<OrganizationEntity> userLoggedInOrganizations = organizationService.findAllByMembers_Id(userLoggedInId);
         Set<ProjectModel> models = new LinkedHashSet<>();
 
-        for (Long id : ids) {
-
-            // Retrieve full referenced objects
-            ProjectEntity project = projectRepository.findById(id).orElse(null);
-            if (project == null) {
-                log.error("Impossible to get project {} : it doesn't exist", id);
-                continue;
-            }
+        for (ProjectEntity project : batchLoaderService.load("project", ids, projectRepository::findAllById)) {
 
             // Verify that principal share an organization with the user
-            Set<OrganizationEntity> projectOrganizations = organizationService.findAllByProjects_Id(id);
-            if (userService.hasNoACommonOrganization(userLoggedInOrganizations, projectOrganizations) && userLoggedIn_isNotAdmin) {
-                log.error("Impossible to get project {} : principal {} is not in its organizations", id, userLoggedInId);
+            if (userLoggedIn_isNotAdmin && !userService.isMemberOfOrganization(userLoggedInId, project.getOrganization().getId())) {
+                log.error("Impossible to get project {} : principal {} is not in its organizations", project.getId(), userLoggedInId);
                 continue;
             }
 
@@ -359,7 +374,7 @@ public class ProjectService {
         projectRepository.save(project);
     }
 
-    public ProjectEntity findLessVotedIdea() {
-        return projectRepository.findLessVotedIdea();
+    public List<ProjectEntity> findLessVotedIdeaOfEachOrganization() {
+        return projectRepository.findLessVotedIdeaOfEachOrganization();
     }
 }
@@ -140,6 +140,7 @@ public class MicrosoftAuthenticationService {
                         () -> organization.getMembers().add(savedUser)
                 );
         organizationService.save(organization);
+        userService.evict(savedUser.getId());
 
         // Create accounts for usable budgets
         accountService.createUserAccountsForUsableBudgets(savedUser, organization.getId());
@@ -270,6 +270,7 @@ public class MicrosoftTeamService {
                             () -> organization.getMembers().add(userInDb)
                     );
             organizationService.save(organization);
+            userService.evict(userInDb.getId());
 
             // Create accounts onboarding users
             accountService.createUserAccountsForUsableBudgets(userInDb, organization.getId());
@@ -295,6 +296,9 @@ public class MicrosoftTeamService {
 
         // Apply member removal from organization
         organizationService.save(organization);
+        msUsersBeforeSync.stream()
+                .filter(msUserBeforeSync -> !msUserIdsAdded.contains(msUserBeforeSync.getId()) && msUserBeforeSync.getUser() != null)
+                .forEach(msUserBeforeSync -> userService.evict(msUserBeforeSync.getUser().getId()));
 
         return null;
     }
@@ -28,7 +28,6 @@ import fr.lesprojetscagnottes.core.user.UserGenerator;
 import fr.lesprojetscagnottes.core.user.entity.UserEntity;
 import fr.lesprojetscagnottes.core.user.repository.UserRepository;
 import fr.lesprojetscagnottes.core.user.service.UserService;
-import fr.lesprojetscagnottes.core.vote.entity.VoteEntity;
 import fr.lesprojetscagnottes.core.vote.model.ScoreModel;
 import fr.lesprojetscagnottes.core.vote.service.VoteService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -274,6 +273,7 @@ public class SlackController {
                         .ifPresent(member -> organization.getMembers().remove(member));
             }
             organizationRepository.save(organization);
+            userService.evict(userWithSlackUser.getId());
 
             // Distribute usable budgets
             Set<BudgetEntity> budgets = budgetRepository.findAllByEndDateGreaterThanAndIsDistributedAndOrganizationId(new Date(), true, organization.getId());
@@ -343,24 +343,7 @@ public class SlackController {
         }
 
         // Vote
-        VoteEntity voteEntity = voteService.getUserVote(user.getId(), project.getId());
-
-        boolean delete = false;
-        if(voteEntity != null && voteEntity.getType().equals(vote.getType())) {
-            delete = true;
-        } else if (voteEntity == null) {
-            voteEntity = new VoteEntity();
-        }
-
-        // Save vote
-        if(delete) {
-            this.voteService.delete(voteEntity);
-        } else {
-            voteEntity.setType(vote.getType());
-            voteEntity.setProject(project);
-            voteEntity.setUser(user);
-            this.voteService.save(voteEntity);
-        }
+        this.voteService.toggle(user, project, vote.getType());
 
         // Update notification
         SlackNotificationEntity slackNotification = slackNotificationService.findById(vote.getSlackNotificationId());
@@ -129,6 +129,7 @@ public class SlackAuthenticationService {
                         () -> organization.getMembers().add(savedUser)
                 );
         organizationService.save(organization);
+        userService.evict(savedUser.getId());
 
         // Create accounts for usable budgets
         accountService.createUserAccountsForUsableBudgets(savedUser, organization.getId());
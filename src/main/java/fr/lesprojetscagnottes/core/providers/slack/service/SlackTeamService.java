@@ -360,6 +360,7 @@ public class SlackTeamService {
                         .ifPresent(member -> organization.getMembers().remove(member));
             }
             organizationService.save(organization);
+            userService.evict(userInDb.getId());
 
         }
         return null;
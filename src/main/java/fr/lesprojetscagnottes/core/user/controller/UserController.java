@@ -16,6 +16,7 @@ import fr.lesprojetscagnottes.core.common.exception.BadRequestException;
 import fr.lesprojetscagnottes.core.common.exception.ForbiddenException;
 import fr.lesprojetscagnottes.core.common.exception.NotFoundException;
 import fr.lesprojetscagnottes.core.common.pagination.DataPage;
+import fr.lesprojetscagnottes.core.common.service.BatchLoaderService;
 import fr.lesprojetscagnottes.core.donation.entity.DonationEntity;
 import fr.lesprojetscagnottes.core.donation.model.DonationModel;
 import fr.lesprojetscagnottes.core.donation.repository.DonationRepository;
@@ -65,6 +66,9 @@ public class UserController {
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Autowired
+    private BatchLoaderService batchLoaderService;
+
     @Autowired
     private AccountRepository accountRepository;
 
@@ -144,9 +148,7 @@ public class UserController {
 
         // Verify that current user and user requested shares an organization
         Long userLoggedInId = userService.get(principal).getId();
-        Set<OrganizationEntity> userLoggedInOrganizations = organizationRepository.findAllByMembers_Id(userLoggedInId);
-        Set<OrganizationEntity> userOrganizations = organizationRepository.findAllByMembers_Id(id);
-        if(userService.hasNoACommonOrganization(userLoggedInOrganizations, userOrganizations) && userService.isNotAdmin(userLoggedInId)) {
+        if(userService.hasNoACommonOrganization(userLoggedInId, id) && userService.isNotAdmin(userLoggedInId)) {
             log.error("Impossible to get user {} : principal {} and him does not share an organization", id, userLoggedInId);
             throw new ForbiddenException();
         }
@@ -176,22 +178,21 @@ public class UserController {
 
         Long userLoggedInId = userService.get(principal).getId();
         boolean userLoggedIn_isNotAdmin = userService.isNotAdmin(userLoggedInId);
-        Set<OrganizationEntity> userLoggedInOrganizations = organizationRepository.findAllByMembers_Id(userLoggedInId);
         Set<UserModel> models = new LinkedHashSet<>();
+        List<UserEntity> users = batchLoaderService.load("user", ids, userRepository::findAllById);
 
-        for(Long id : ids) {
+        // Users sharing an organization with principal are found at once
+        Set<Long> visibleUserIds = Set.of();
+        Set<Long> userLoggedInOrganizationIds = userService.getAuthorizations(userLoggedInId).getOrganizationIds();
+        if(userLoggedIn_isNotAdmin && !users.isEmpty() && !userLoggedInOrganizationIds.isEmpty()) {
+            visibleUserIds = userRepository.findAllIdsByIdInAndOrganizationIdIn(ids, userLoggedInOrganizationIds);
+        }
 
-            // Retrieve full referenced objects
-            UserEntity user = userRepository.findById(id).orElse(null);
-            if(user == null) {
-                log.error("Impossible to get user {} : it doesn't exist", id);
-                continue;
-            }
+        for(UserEntity user : users) {
 
             // Verify that principal share an organization with the user
-            Set<OrganizationEntity> userOrganizations = organizationRepository.findAllByMembers_Id(id);
-            if(userService.hasNoACommonOrganization(userLoggedInOrganizations, userOrganizations) && userLoggedIn_isNotAdmin) {
-                log.error("Impossible to get user {} : principal {} and him does not share an organization", id, userLoggedInId);
+            if(!visibleUserIds.contains(user.getId()) && userLoggedIn_isNotAdmin) {
+                log.error("Impossible to get user {} : principal {} and him does not share an organization", user.getId(), userLoggedInId);
                 continue;
             }
 
@@ -404,7 +405,7 @@ public class UserController {
         // Get and transform entities
         Set<OrganizationModel> models = new LinkedHashSet<>();
         if(isNotAdmin) {
-            Set<OrganizationEntity> entities = organizationRepository.findAllByMembers_Id(id);
+            List<OrganizationEntity> entities = organizationRepository.findAllById(userService.getAuthorizations(id).getOrganizationIds());
             entities.forEach(entity -> models.add(OrganizationModel.fromEntity(entity)));
         } else {
             List<OrganizationEntity> entities = organizationRepository.findAll();
@@ -575,6 +576,7 @@ public class UserController {
         user.setAvatarUrl(userService.generateAvatarUrl(userModel));
         user.setEnabled(userModel.getEnabled());
         userRepository.save(user);
+        userService.evict(user.getId());
     }
 
     @Operation(summary = "Find all organization authorities", description = "Find all organization authorities", tags = { "Users" })
@@ -656,6 +658,7 @@ public class UserController {
                         }
                 );
         userRepository.save(userInDb);
+        userService.evict(userInDb.getId());
     }
 
     @Operation(summary = "Grant a user with an organization authority", description = "Grant a user with an organization authority", tags = { "Users" })
@@ -710,6 +713,7 @@ public class UserController {
                         }
                 );
         userRepository.save(userInDb);
+        userService.evict(userInDb.getId());
     }
 
 }
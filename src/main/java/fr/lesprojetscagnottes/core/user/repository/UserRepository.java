@@ -3,10 +3,13 @@ package fr.lesprojetscagnottes.core.user.repository;
 import fr.lesprojetscagnottes.core.user.entity.UserEntity;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 
@@ -21,13 +24,37 @@ public interface UserRepository extends JpaRepository<UserEntity, Long> {
 
     UserEntity findByEmail(String email);
 
+    @Query("select distinct u from UserEntity u left join fetch u.userAuthorities " +
+            "where u.username = :login or u.email = :login or u.id = :id")
+    List<UserEntity> findAllWithAuthoritiesByLoginOrId(@Param("login") String login, @Param("id") Long id);
+
     UserEntity findBySlackUsers_Id(Long slackUserId);
 
     Set<UserEntity> findAllByProjects_Id(Long id);
 
     Set<UserEntity> findAllByOrganizations_id(Long id);
 
-    Page<UserEntity> findAllByOrganizations_id(long id, Pageable pageable);
+    // Null names are sorted as empty ones, in the same order as the keyset listing
+    @Query(nativeQuery = true,
+            value= "select u.* from users u " +
+                    "    inner join organizations_users ou on ou.user_id = u.id " +
+                    "    where ou.organization_id = :organization_id " +
+                    "    order by coalesce(u.firstname, ''), coalesce(u.lastname, ''), u.id",
+            countQuery = "select count(*) from organizations_users ou where ou.organization_id = :organization_id")
+    Page<UserEntity> findAllByOrganizationId(@Param("organization_id") long organizationId, Pageable pageable);
+
+    // The bound is made of the sort keys of the cursor row, so that it is always usable by users_name_idx
+    @Query(nativeQuery = true,
+            value= "select u.* from users u " +
+                    "    inner join organizations_users ou on ou.user_id = u.id " +
+                    "    where ou.organization_id = :organization_id " +
+                    "    and (coalesce(u.firstname, ''), coalesce(u.lastname, ''), u.id) > (:firstname, :lastname, :after) " +
+                    "    order by coalesce(u.firstname, ''), coalesce(u.lastname, ''), u.id")
+    Slice<UserEntity> findAllByOrganizationIdAfter(@Param("organization_id") long organizationId, @Param("firstname") String firstname, @Param("lastname") String lastname,
+                                                   @Param("after") long after, Pageable pageable);
+
+    @Query("select distinct u.id from UserEntity u join u.organizations o where u.id in :ids and o.id in :organizationIds")
+    Set<Long> findAllIdsByIdInAndOrganizationIdIn(@Param("ids") Collection<Long> ids, @Param("organizationIds") Collection<Long> organizationIds);
 
     @Query(nativeQuery = true,
             value= "select u.* from users u " +
@@ -37,4 +64,20 @@ public interface UserRepository extends JpaRepository<UserEntity, Long> {
                     "    order by a.id")
     Set<UserEntity> findAllByBudgetId(@Param("budget_id") Long budgetId);
 
-}
\ No newline at end of file
+    @Query(nativeQuery = true,
+            value= "select null as organization_id, a.name from user_authority ua " +
+                    "    inner join authorities a on a.id = ua.authority_id " +
+                    "    where ua.user_id = :user_id and a.name = 'ROLE_ADMIN' " +
+                    "union all " +
+                    "select ou.organization_id, oa.name from organizations_users ou " +
+                    "    left join (user_authority_organizations uao " +
+                    "        inner join organizations_authorities oa on oa.id = uao.organization_authority_id) " +
+                    "    on uao.user_id = ou.user_id and oa.organization_id = ou.organization_id " +
+                    "    where ou.user_id = :user_id")
+    List<Object[]> findAuthorizationsById(@Param("user_id") Long userId);
+
+    // Sent to every node listening once the transaction commits
+    @Query(value = "SELECT count(*) FROM (SELECT pg_notify('user_eviction', CAST(:_user_id AS text))) n", nativeQuery = true)
+    long notifyEviction(@Param("_user_id") long userId);
+
+}
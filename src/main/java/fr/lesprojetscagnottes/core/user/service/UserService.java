@@ -1,23 +1,24 @@
 package fr.lesprojetscagnottes.core.user.service;
 
 import fr.lesprojetscagnottes.core.authentication.service.AuthService;
-import fr.lesprojetscagnottes.core.authorization.name.AuthorityName;
+import fr.lesprojetscagnottes.core.authorization.model.AuthorizationSnapshot;
 import fr.lesprojetscagnottes.core.authorization.name.OrganizationAuthorityName;
-import fr.lesprojetscagnottes.core.authorization.repository.AuthorityRepository;
-import fr.lesprojetscagnottes.core.authorization.repository.OrganizationAuthorityRepository;
 import fr.lesprojetscagnottes.core.common.GenericModel;
-import fr.lesprojetscagnottes.core.common.security.UserPrincipal;
-import fr.lesprojetscagnottes.core.organization.entity.OrganizationEntity;
-import fr.lesprojetscagnottes.core.organization.repository.OrganizationRepository;
+import fr.lesprojetscagnottes.core.common.cache.ExpiringCache;
+import fr.lesprojetscagnottes.core.common.notification.NotificationHandler;
+import fr.lesprojetscagnottes.core.common.notification.NotificationListenerTask;
 import fr.lesprojetscagnottes.core.user.entity.UserEntity;
 import fr.lesprojetscagnottes.core.user.model.UserModel;
 import fr.lesprojetscagnottes.core.user.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
 
 import java.security.Principal;
 import java.util.*;
@@ -26,22 +27,55 @@ import java.util.*;
 @Service
 public class UserService {
 
+    public static final String EVICTION_CHANNEL = "user_eviction";
+
+    private static final String USER_ATTRIBUTE = UserService.class.getName() + ".user.";
+
+    @Value("${fr.lesprojetscagnottes.core.user.cache.size}")
+    private int userCacheSize;
+
+    @Value("${fr.lesprojetscagnottes.core.user.cache.ttl}")
+    private long userCacheTtl;
+
+    @Value("${fr.lesprojetscagnottes.core.user.authorization.cache.size}")
+    private int authorizationCacheSize;
+
+    @Value("${fr.lesprojetscagnottes.core.user.authorization.cache.ttl}")
+    private long authorizationCacheTtl;
+
     @Autowired
     private AuthService authService;
     @Autowired
     private PasswordEncoder passwordEncoder;
 
     @Autowired
-    private AuthorityRepository authorityRepository;
+    private UserRepository userRepository;
 
     @Autowired
-    private OrganizationAuthorityRepository organizationAuthorityRepository;
+    private NotificationListenerTask notificationListenerTask;
 
-    @Autowired
-    private OrganizationRepository organizationRepository;
+    // Principal names resolved to user IDs, entities are reloaded by ID so they belong to the current request
+    private ExpiringCache<String, Long> userIds;
 
-    @Autowired
-    private UserRepository userRepository;
+    private ExpiringCache<Long, AuthorizationSnapshot> authorizations;
+
+    @PostConstruct
+    public void init() {
+        userIds = new ExpiringCache<>(userCacheSize, userCacheTtl);
+        authorizations = new ExpiringCache<>(authorizationCacheSize, authorizationCacheTtl);
+        notificationListenerTask.subscribe(EVICTION_CHANNEL, new NotificationHandler() {
+            @Override
+            public void handle(String userId) {
+                evictLocally(Long.parseLong(userId));
+            }
+
+            @Override
+            public void listening() {
+                userIds.clear();
+                authorizations.clear();
+            }
+        });
+    }
 
     public UserEntity findById(Long id) {
         return userRepository.findById(id).orElse(null);
@@ -53,20 +87,63 @@ public class UserService {
 
     public UserEntity get(Principal principal) {
         UsernamePasswordAuthenticationToken token = (UsernamePasswordAuthenticationToken) principal;
+
+        // The user is resolved once per request
+        RequestAttributes request = RequestContextHolder.getRequestAttributes();
+        String attribute = USER_ATTRIBUTE + token.getPrincipal();
+        if(request != null && request.getAttribute(attribute, RequestAttributes.SCOPE_REQUEST) instanceof UserEntity user) {
+            return user;
+        }
+
+        UserEntity user = resolve(token);
+        if(request != null && user != null) {
+            request.setAttribute(attribute, user, RequestAttributes.SCOPE_REQUEST);
+        }
+        return user;
+    }
+
+    private UserEntity resolve(UsernamePasswordAuthenticationToken token) {
         UserEntity user;
         if(token.getPrincipal().getClass().equals(GenericModel.class)) {
             user = userRepository.findById(Long.getLong(token.getPrincipal().toString())).orElse(null);
         } else {
-            UserDetails userDetails = this.authService.loadUserByUsername(token.getPrincipal().toString());
-            UserPrincipal userPrincipal = (UserPrincipal) userDetails;
-            user = userRepository.findByUsername(userPrincipal.getUsername());
-            if (user == null) {
-                user = userRepository.findByEmail(userPrincipal.getUsername());
+            String name = token.getPrincipal().toString();
+            Long id = userIds.get(name);
+            if(id != null) {
+                user = userRepository.findById(id).orElse(null);
+                if(user != null) {
+                    return user;
+                }
+                userIds.remove(name);
+            }
+            user = authService.findUser(name);
+            if (user != null) {
+                userIds.put(name, user.getId());
             }
         }
         return user;
     }
 
+    // To call whenever a user, its authorities or its memberships are changed without UserService, other nodes evict it too
+    public void evict(long userId) {
+        evictLocally(userId);
+        userRepository.notifyEviction(userId);
+    }
+
+    private void evictLocally(long userId) {
+        userIds.removeValues(id -> id == userId);
+        authorizations.remove(userId);
+    }
+
+    public AuthorizationSnapshot getAuthorizations(long userId) {
+        AuthorizationSnapshot snapshot = authorizations.get(userId);
+        if(snapshot == null) {
+            snapshot = AuthorizationSnapshot.fromRows(userRepository.findAuthorizationsById(userId));
+            authorizations.put(userId, snapshot);
+        }
+        return snapshot;
+    }
+
     public List<UserEntity> findAll() {
         List<UserEntity> list = new ArrayList<>();
         userRepository.findAll().iterator().forEachRemaining(list::add);
@@ -99,6 +176,7 @@ public class UserService {
 
     public void delete(long id) {
         userRepository.deleteById(id);
+        evict(id);
     }
 
     public UserEntity save(UserEntity user) {
@@ -108,11 +186,13 @@ public class UserService {
         }
         user.setUsername(user.getEmail());
         log.debug("Saving {}", user);
-        return userRepository.save(user);
+        UserEntity savedUser = userRepository.save(user);
+        evict(savedUser.getId());
+        return savedUser;
     }
 
     public boolean isMemberOfOrganization(long userId, long organizationId) {
-        return organizationRepository.findByIdAndMembers_Id(organizationId, userId) != null;
+        return getAuthorizations(userId).isMemberOf(organizationId);
     }
 
     public boolean isNotSponsorOfOrganization(long userId, long organizationId) {
@@ -128,23 +208,15 @@ public class UserService {
     }
 
     private boolean hasNotOrganizationAuthority(long userId, long organizationId, OrganizationAuthorityName authorityName) {
-        return organizationAuthorityRepository.findByOrganizationIdAndUsersIdAndName(organizationId, userId, authorityName) == null;
+        return !getAuthorizations(userId).hasOrganizationAuthority(organizationId, authorityName);
     }
 
     public boolean isNotAdmin(long userId) {
-        return authorityRepository.findByNameAndUsers_Id(AuthorityName.ROLE_ADMIN, userId) == null;
+        return !getAuthorizations(userId).isAdmin();
     }
 
-    public boolean hasNoACommonOrganization(Set<OrganizationEntity> organizations1, Set<OrganizationEntity> organizations2) {
-        final boolean[] notFound = {true};
-        organizations1.forEach(organization1 -> {
-            int k = 0;
-            while(notFound[0] && k < organizations2.size()) {
-                notFound[0] = organizations2.stream().noneMatch(organization2 -> organization2.getId().equals(organization1.getId()));
-                k++;
-            }
-        });
-        return notFound[0];
+    public boolean hasNoACommonOrganization(long userId1, long userId2) {
+        return Collections.disjoint(getAuthorizations(userId1).getOrganizationIds(), getAuthorizations(userId2).getOrganizationIds());
     }
 
 }
\ No newline at end of file
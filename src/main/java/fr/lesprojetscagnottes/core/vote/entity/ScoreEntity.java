@@ -0,0 +1,15 @@
+package fr.lesprojetscagnottes.core.vote.entity;
+
+import fr.lesprojetscagnottes.core.vote.model.ScoreModel;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Table;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter(AccessLevel.PUBLIC)
+@Setter(AccessLevel.PUBLIC)
+@Entity
+@Table(name = "project_scores")
+public class ScoreEntity extends ScoreModel {
+}
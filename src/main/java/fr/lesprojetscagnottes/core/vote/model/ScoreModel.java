@@ -1,15 +1,29 @@
 package fr.lesprojetscagnottes.core.vote.model;
 
+import jakarta.persistence.Column;
+import jakarta.persistence.Id;
+import jakarta.persistence.MappedSuperclass;
 import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
 import lombok.Getter;
+import lombok.NoArgsConstructor;
 import lombok.Setter;
 
 @Getter(AccessLevel.PUBLIC)
 @Setter(AccessLevel.PUBLIC)
+@MappedSuperclass
+@AllArgsConstructor
+@NoArgsConstructor
 public class ScoreModel {
 
+    @Id
+    @Column(name = "project_id")
     private Long projectId;
+
+    @Column
     private Long up;
+
+    @Column
     private Long down;
 
 }
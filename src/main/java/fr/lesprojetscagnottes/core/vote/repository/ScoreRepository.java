@@ -0,0 +1,37 @@
+package fr.lesprojetscagnottes.core.vote.repository;
+
+import fr.lesprojetscagnottes.core.vote.entity.ScoreEntity;
+import fr.lesprojetscagnottes.core.vote.model.ScoreModel;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface ScoreRepository extends JpaRepository<ScoreEntity, Long> {
+
+    // Projects without any vote are not returned
+    @Query("select new fr.lesprojetscagnottes.core.vote.model.ScoreModel(s.projectId, s.up, s.down) from ScoreEntity s where s.projectId in :projectIds")
+    List<ScoreModel> findAllByProjectIdIn(@Param("projectIds") Collection<Long> projectIds);
+
+    @Modifying
+    @Query(value = "INSERT INTO project_scores (project_id, up, down) VALUES (:_project_id, :_up, :_down) " +
+            "ON CONFLICT (project_id) DO UPDATE SET up = project_scores.up + EXCLUDED.up, down = project_scores.down + EXCLUDED.down", nativeQuery = true)
+    int add(@Param("_project_id") long projectId, @Param("_up") long up, @Param("_down") long down);
+
+    // Votes are write locked until the transaction ends, so that no vote is counted twice or missed
+    @Modifying
+    @Query(value = "LOCK TABLE votes IN SHARE MODE", nativeQuery = true)
+    void lockVotes();
+
+    @Modifying
+    @Query(value = "INSERT INTO project_scores (project_id, up, down) " +
+            "SELECT p.id, count(v.id) FILTER (WHERE v.type = 'UP'), count(v.id) FILTER (WHERE v.type = 'DOWN') " +
+            "FROM projects p LEFT JOIN votes v ON v.project_id = p.id GROUP BY p.id " +
+            "ON CONFLICT (project_id) DO UPDATE SET up = EXCLUDED.up, down = EXCLUDED.down " +
+            "WHERE project_scores.up <> EXCLUDED.up OR project_scores.down <> EXCLUDED.down", nativeQuery = true)
+    int rebuild();
+
+}
@@ -6,6 +6,7 @@ import fr.lesprojetscagnottes.core.notification.service.NotificationService;
 import fr.lesprojetscagnottes.core.project.entity.ProjectEntity;
 import fr.lesprojetscagnottes.core.project.service.ProjectService;
 import fr.lesprojetscagnottes.core.user.service.UserService;
+import fr.lesprojetscagnottes.core.vote.service.VoteService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
@@ -26,23 +27,36 @@ public class VoteScheduler {
 
     private final ProjectService projectService;
 
+    private final VoteService voteService;
+
     @Autowired
     public VoteScheduler(NewsService newsService,
                          NotificationService notificationService,
                          UserService userService,
-                         ProjectService projectService) {
+                         ProjectService projectService,
+                         VoteService voteService) {
         this.notificationService = notificationService;
         this.projectService = projectService;
+        this.voteService = voteService;
     }
     @Scheduled(cron = "${fr.lesprojetscagnottes.core.schedule.voteforidea}")
     public void notifyVoteForIdea() {
         log.info("Vote for idea has started");
-        ProjectEntity project = projectService.findLessVotedIdea();
-        Map<String, Object> model = new HashMap<>();
-        model.put("_organization_id_", project.getOrganization().getId());
-        model.put("project_id", project.getId());
-        model.put("project_title", project.getTitle());
-        model.put("project_url", webUrl + "/projects/" + project.getId());
-        notificationService.create(NotificationName.VOTE_ON_IDEA, model, project.getOrganization().getId());
+        for (ProjectEntity project : projectService.findLessVotedIdeaOfEachOrganization()) {
+            Map<String, Object> model = new HashMap<>();
+            model.put("_organization_id_", project.getOrganization().getId());
+            model.put("project_id", project.getId());
+            model.put("project_title", project.getTitle());
+            model.put("project_url", webUrl + "/projects/" + project.getId());
+            notificationService.create(NotificationName.VOTE_ON_IDEA, model, project.getOrganization().getId());
+        }
+    }
+
+    @Scheduled(cron = "${fr.lesprojetscagnottes.core.schedule.votescoresrebuild}")
+    public void rebuildScores() {
+        log.info("[rebuildScores] Start Project Scores Rebuild");
+        int repaired = voteService.rebuildScores();
+        log.info("[rebuildScores] " + repaired + " project score(s) repaired");
+        log.info("[rebuildScores] End Project Scores Rebuild");
     }
 }
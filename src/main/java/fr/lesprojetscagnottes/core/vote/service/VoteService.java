@@ -3,6 +3,7 @@ package fr.lesprojetscagnottes.core.vote.service;
 import fr.lesprojetscagnottes.core.common.exception.BadRequestException;
 import fr.lesprojetscagnottes.core.common.exception.ForbiddenException;
 import fr.lesprojetscagnottes.core.common.exception.NotFoundException;
+import fr.lesprojetscagnottes.core.common.service.BatchLoaderService;
 import fr.lesprojetscagnottes.core.project.entity.ProjectEntity;
 import fr.lesprojetscagnottes.core.project.service.ProjectService;
 import fr.lesprojetscagnottes.core.user.entity.UserEntity;
@@ -11,37 +12,54 @@ import fr.lesprojetscagnottes.core.vote.entity.VoteEntity;
 import fr.lesprojetscagnottes.core.vote.model.ScoreModel;
 import fr.lesprojetscagnottes.core.vote.model.VoteModel;
 import fr.lesprojetscagnottes.core.vote.model.VoteType;
+import fr.lesprojetscagnottes.core.vote.repository.ScoreRepository;
 import fr.lesprojetscagnottes.core.vote.repository.VoteRepository;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.security.Principal;
-import java.util.LinkedHashSet;
-import java.util.Optional;
-import java.util.Set;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Service
 public class VoteService {
 
+    private final BatchLoaderService batchLoaderService;
     private final ProjectService projectService;
+    private final ScoreRepository scoreRepository;
     private final UserService userService;
     private final VoteRepository voteRepository;
 
     @Autowired
-    public VoteService(ProjectService projectService, UserService userService, VoteRepository voteRepository) {
+    public VoteService(BatchLoaderService batchLoaderService, ProjectService projectService, ScoreRepository scoreRepository, UserService userService, VoteRepository voteRepository) {
+        this.batchLoaderService = batchLoaderService;
         this.projectService = projectService;
+        this.scoreRepository = scoreRepository;
         this.userService = userService;
         this.voteRepository = voteRepository;
     }
 
     public ScoreModel getScoreByProjectId(Long projectId) {
-        ScoreModel scoreModel = new ScoreModel();
-        scoreModel.setProjectId(projectId);
-        scoreModel.setUp(voteRepository.countByTypeAndProjectId(VoteType.UP, projectId));
-        scoreModel.setDown(voteRepository.countByTypeAndProjectId(VoteType.DOWN, projectId));
-        return scoreModel;
+        return getScoreByProjectIds(List.of(projectId)).get(0);
+    }
+
+    public List<ScoreModel> getScoreByProjectIds(List<Long> projectIds) {
+        if (projectIds.isEmpty()) {
+            return List.of();
+        }
+
+        // Projects never voted have no counters and get a zero score
+        Map<Long, ScoreModel> scores = scoreRepository.findAllByProjectIdIn(projectIds).stream()
+                .collect(Collectors.toMap(ScoreModel::getProjectId, Function.identity()));
+        List<ScoreModel> models = new ArrayList<>();
+        for (Long projectId : projectIds) {
+            models.add(scores.getOrDefault(projectId, new ScoreModel(projectId, 0L, 0L)));
+        }
+        return models;
     }
 
     public ScoreModel getScoreByProjectId(Principal principal, Long projectId) {
@@ -76,38 +94,23 @@ public class VoteService {
 
         Long userLoggedInId = userService.get(principal).getId();
         boolean userLoggedIn_isNotAdmin = userService.isNotAdmin(userLoggedInId);
-        Set<ScoreModel> models = new LinkedHashSet<>();
+        List<Long> allowedProjectIds = new ArrayList<>();
 
-        for (Long id : projectIds) {
-
-            // Retrieve full referenced objects
-            ProjectEntity project = projectService.findById(id);
-            if (project == null) {
-                log.error("Impossible to get score for project {} : it doesn't exist", id);
-                continue;
-            }
+        for (ProjectEntity project : batchLoaderService.load("project", projectIds, projectService::findAllByIds)) {
 
             // Verify that principal share an organization with the user
             if(userLoggedIn_isNotAdmin && !userService.isMemberOfOrganization(userLoggedInId, project.getOrganization().getId())) {
-                log.error("Impossible to get score for project {} : principal {} is not in its organizations", id, userLoggedInId);
+                log.error("Impossible to get score for project {} : principal {} is not in its organizations", project.getId(), userLoggedInId);
                 continue;
             }
 
-            // Add the user to returned list
-            ScoreModel scoreModel = new ScoreModel();
-            scoreModel.setProjectId(id);
-            scoreModel.setUp(voteRepository.countByTypeAndProjectId(VoteType.UP, id));
-            scoreModel.setDown(voteRepository.countByTypeAndProjectId(VoteType.DOWN, id));
-            models.add(scoreModel);
+            allowedProjectIds.add(project.getId());
         }
 
-        return models;
-    }
-
-    public VoteEntity save(VoteEntity vote) {
-        return voteRepository.save(vote);
+        return new LinkedHashSet<>(getScoreByProjectIds(allowedProjectIds));
     }
 
+    @Transactional
     public VoteModel vote(Principal principal, VoteModel voteModel) {
 
         // Fails if any of references are null
@@ -137,21 +140,47 @@ public class VoteService {
             throw new ForbiddenException();
         }
 
+        VoteEntity vote = this.toggle(userLoggedIn, project, voteModel.getType());
+        return vote == null ? null : VoteModel.fromEntity(vote);
+    }
+
+    // Casting the same vote twice removes it, project counters are updated in the same transaction
+    @Transactional
+    public VoteEntity toggle(UserEntity user, ProjectEntity project, VoteType type) {
+
         // Get existing vote
-        log.debug("Find vote for user {} on project {}", userLoggedInId, project.getId());
-        VoteEntity voteToSave = this.getUserVote(userLoggedInId, project.getId());
+        log.debug("Find vote for user {} on project {}", user.getId(), project.getId());
+        VoteEntity vote = this.getUserVote(user.getId(), project.getId());
 
-        log.debug("Vote received : {}, Vote in DB : {}", voteModel.getType(), voteToSave.getType());
-        if(voteToSave.getType().equals(voteModel.getType())) {
-            this.delete(voteToSave);
+        log.debug("Vote received : {}, Vote in DB : {}", type, vote.getType());
+        count(project.getId(), vote.getType(), -1);
+        if(vote.getType().equals(type)) {
+            voteRepository.delete(vote);
             return null;
         }
 
-        // Save project
-        voteToSave.setType(voteModel.getType());
-        voteToSave.setProject(project);
-        voteToSave.setUser(userLoggedIn);
-        return VoteModel.fromEntity(this.save(voteToSave));
+        // Save vote
+        vote.setType(type);
+        vote.setProject(project);
+        vote.setUser(user);
+        vote = voteRepository.save(vote);
+        count(project.getId(), type, 1);
+        return vote;
+    }
+
+    // Counters are recomputed from votes, that are write locked meanwhile
+    @Transactional
+    public int rebuildScores() {
+        scoreRepository.lockVotes();
+        return scoreRepository.rebuild();
+    }
+
+    private void count(Long projectId, VoteType type, long delta) {
+        if(type == VoteType.UP) {
+            scoreRepository.add(projectId, delta, 0);
+        } else if(type == VoteType.DOWN) {
+            scoreRepository.add(projectId, 0, delta);
+        }
     }
 
     public VoteEntity getUserVote(Long userId, Long projectId) {
@@ -184,8 +213,4 @@ public class VoteService {
 
         return VoteModel.fromEntity(this.getUserVote(userLoggedInId, projectId));
     }
-
-    public void delete(VoteEntity voteEntity) {
-        this.voteRepository.delete(voteEntity);
-    }
 }
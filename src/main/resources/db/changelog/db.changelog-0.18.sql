@@ -0,0 +1,413 @@
+--liquibase formatted sql
+
+--changeset lesprojetscagnottes:create-sequence-donation_operations
+CREATE SEQUENCE IF NOT EXISTS donation_operations_seq
+    START WITH 1
+    INCREMENT BY 50
+    NO MINVALUE
+    NO MAXVALUE
+    CACHE 1;
+--rollback drop sequence donation_operations_seq;
+
+--changeset lesprojetscagnottes:create-table-donation_operations
+CREATE TABLE IF NOT EXISTS donation_operations (
+    id bigint primary key,
+    created_at timestamp without time zone DEFAULT now(),
+    created_by character varying(255) DEFAULT 'System'::character varying,
+    updated_at timestamp without time zone DEFAULT now(),
+    updated_by character varying(255) DEFAULT 'System'::character varying,
+    type character varying(50) NOT NULL,
+    status character varying(50) NOT NULL,
+    attempts integer NOT NULL DEFAULT 0,
+    donation_id bigint,
+    account_id bigint,
+    campaign_id bigint,
+    amount real
+);
+CREATE INDEX IF NOT EXISTS donation_operations_pending_idx ON donation_operations (id) WHERE status = 'PENDING';
+--rollback drop table donation_operations;
+
+--changeset lesprojetscagnottes:create-sequence-donation_reconciliations
+CREATE SEQUENCE IF NOT EXISTS donation_reconciliations_seq
+    START WITH 1
+    INCREMENT BY 50
+    NO MINVALUE
+    NO MAXVALUE
+    CACHE 1;
+--rollback drop sequence donation_reconciliations_seq;
+
+--changeset lesprojetscagnottes:create-sequence-donation_reconciliation_mismatches
+CREATE SEQUENCE IF NOT EXISTS donation_reconciliation_mismatches_seq
+    START WITH 1
+    INCREMENT BY 50
+    NO MINVALUE
+    NO MAXVALUE
+    CACHE 1;
+--rollback drop sequence donation_reconciliation_mismatches_seq;
+
+--changeset lesprojetscagnottes:create-table-donation_reconciliations
+CREATE TABLE IF NOT EXISTS donation_reconciliations (
+    id bigint primary key,
+    created_at timestamp without time zone DEFAULT now(),
+    created_by character varying(255) DEFAULT 'System'::character varying,
+    updated_at timestamp without time zone DEFAULT now(),
+    updated_by character varying(255) DEFAULT 'System'::character varying,
+    incremental boolean NOT NULL,
+    status character varying(50) NOT NULL,
+    since timestamp without time zone,
+    started_at timestamp without time zone,
+    finished_at timestamp without time zone,
+    mismatches integer NOT NULL DEFAULT 0
+);
+--rollback drop table donation_reconciliations;
+
+--changeset lesprojetscagnottes:create-table-donation_reconciliation_mismatches
+CREATE TABLE IF NOT EXISTS donation_reconciliation_mismatches (
+    id bigint primary key,
+    created_at timestamp without time zone DEFAULT now(),
+    created_by character varying(255) DEFAULT 'System'::character varying,
+    updated_at timestamp without time zone DEFAULT now(),
+    updated_by character varying(255) DEFAULT 'System'::character varying,
+    reconciliation_id bigint NOT NULL REFERENCES donation_reconciliations (id) ON DELETE CASCADE,
+    type character varying(50) NOT NULL,
+    entity_id bigint,
+    related_id bigint,
+    expected real,
+    actual real
+);
+CREATE INDEX IF NOT EXISTS donation_reconciliation_mismatches_reconciliation_idx ON donation_reconciliation_mismatches (reconciliation_id, id);
+--rollback drop table donation_reconciliation_mismatches;
+
+--changeset lesprojetscagnottes:create-table-campaign_donation_counters
+CREATE TABLE IF NOT EXISTS campaign_donation_counters (
+    campaign_id bigint NOT NULL REFERENCES campaigns (id) ON DELETE CASCADE,
+    slot integer NOT NULL,
+    amount real NOT NULL DEFAULT 0,
+    primary key (campaign_id, slot)
+);
+--rollback drop table campaign_donation_counters;
+
+--changeset lesprojetscagnottes:create-table-budget_donation_counters
+CREATE TABLE IF NOT EXISTS budget_donation_counters (
+    budget_id bigint NOT NULL REFERENCES budgets (id) ON DELETE CASCADE,
+    slot integer NOT NULL,
+    amount real NOT NULL DEFAULT 0,
+    primary key (budget_id, slot)
+);
+--rollback drop table budget_donation_counters;
+
+--changeset lesprojetscagnottes:update-table-campaigns-budgets-total_donations-default
+UPDATE campaigns SET total_donations = 0 WHERE total_donations IS NULL;
+UPDATE budgets SET total_donations = 0 WHERE total_donations IS NULL;
+ALTER TABLE campaigns ALTER COLUMN total_donations SET DEFAULT 0;
+ALTER TABLE budgets ALTER COLUMN total_donations SET DEFAULT 0;
+
+--changeset lesprojetscagnottes:add-function-donation_counter_slot
+CREATE OR REPLACE FUNCTION donation_counter_slot()
+    RETURNS integer
+    LANGUAGE sql
+    VOLATILE
+    AS 'select floor(random() * 16)::integer';
+--rollback drop function if exists donation_counter_slot;
+
+--changeset lesprojetscagnottes:update-function-create_donation
+CREATE OR REPLACE FUNCTION create_donation(_account_id bigint, _campaign_id bigint, _amount real)
+    RETURNS boolean
+    LANGUAGE plpgsql
+    AS '
+        DECLARE
+            _account_amount FLOAT4;
+            _budget_id INT8;
+        BEGIN
+            select amount, budget_id
+                into _account_amount, _budget_id
+                from accounts where id = _account_id
+                for update;
+            IF _account_amount < _amount THEN
+                RAISE EXCEPTION ''Not enough amount on account %'', _account_id
+                    USING HINT = ''Please check your budget'';
+                return false;
+            END IF;
+            insert into donations (id, amount, campaign_id, account_id)
+                values(nextval(''donations_seq''), _amount, _campaign_id, _account_id);
+            update accounts set amount = (amount - _amount), updated_at = now() where id = _account_id;
+            insert into campaign_donation_counters (campaign_id, slot, amount)
+                values (_campaign_id, donation_counter_slot(), _amount)
+                on conflict (campaign_id, slot) do update set amount = campaign_donation_counters.amount + excluded.amount;
+            insert into budget_donation_counters (budget_id, slot, amount)
+                values (_budget_id, donation_counter_slot(), _amount)
+                on conflict (budget_id, slot) do update set amount = budget_donation_counters.amount + excluded.amount;
+
+            return true;
+        END;
+    ';
+
+--changeset lesprojetscagnottes:add-function-create_donations
+CREATE OR REPLACE FUNCTION create_donations(_account_ids bigint[], _campaign_ids bigint[], _amounts real[])
+    RETURNS boolean[]
+    LANGUAGE plpgsql
+    AS '
+        DECLARE
+            _applied boolean[] := array_fill(false, ARRAY[coalesce(array_length(_account_ids, 1), 0)]);
+            _balance_ids INT8[];
+            _balances FLOAT4[];
+            _open_campaign_ids INT8[];
+            _campaign_id INT8;
+            _position INT4;
+        BEGIN
+            IF coalesce(array_length(_account_ids, 1), 0) = 0 THEN
+                return _applied;
+            END IF;
+
+            -- Campaign rows are not locked, a shared lock per campaign only makes a refund wait for the batches already past this point
+            FOR _campaign_id IN select distinct c.id from unnest(_campaign_ids) as c(id) order by c.id LOOP
+                perform pg_advisory_xact_lock_shared(hashtext(''campaign_donations''), CAST(_campaign_id % 2147483647 AS integer));
+            END LOOP;
+            select array_agg(id)
+                into _open_campaign_ids
+                from campaigns where id = any(_campaign_ids) and status = ''IN_PROGRESS'';
+
+            -- Lock every account of the batch, always in the same order
+            select array_agg(a.id order by a.id), array_agg(a.amount order by a.id)
+                into _balance_ids, _balances
+                from (select id, amount from accounts where id = any(_account_ids) order by id for update) a;
+
+            -- Accept donations in order while the account balance allows it
+            FOR _i IN 1 .. array_length(_account_ids, 1) LOOP
+                _position := array_position(_balance_ids, _account_ids[_i]);
+                IF _position IS NOT NULL
+                    AND _campaign_ids[_i] = any(_open_campaign_ids)
+                    AND _balances[_position] >= _amounts[_i] THEN
+                    _balances[_position] := _balances[_position] - _amounts[_i];
+                    _applied[_i] := true;
+                END IF;
+            END LOOP;
+
+            insert into donations (id, amount, campaign_id, account_id)
+                select nextval(''donations_seq''), d.amount, d.campaign_id, d.account_id
+                from unnest(_account_ids, _campaign_ids, _amounts, _applied) as d(account_id, campaign_id, amount, applied)
+                where d.applied;
+            update accounts a set amount = (a.amount - t.total), updated_at = now()
+                from (select d.account_id, sum(d.amount) as total
+                      from unnest(_account_ids, _amounts, _applied) as d(account_id, amount, applied)
+                      where d.applied group by d.account_id) t
+                where a.id = t.account_id;
+
+            -- Totals go to a random slot instead of the campaign and budget rows, see compact_donation_counters
+            insert into campaign_donation_counters (campaign_id, slot, amount)
+                select d.campaign_id, donation_counter_slot(), sum(d.amount)
+                from unnest(_campaign_ids, _amounts, _applied) as d(campaign_id, amount, applied)
+                where d.applied group by d.campaign_id order by d.campaign_id
+                on conflict (campaign_id, slot) do update set amount = campaign_donation_counters.amount + excluded.amount;
+            insert into budget_donation_counters (budget_id, slot, amount)
+                select a.budget_id, donation_counter_slot(), sum(d.amount)
+                from unnest(_account_ids, _amounts, _applied) as d(account_id, amount, applied)
+                inner join accounts a on a.id = d.account_id
+                where d.applied group by a.budget_id order by a.budget_id
+                on conflict (budget_id, slot) do update set amount = budget_donation_counters.amount + excluded.amount;
+
+            return _applied;
+        END;
+    ';
+--rollback drop function if exists create_donations;
+
+--changeset lesprojetscagnottes:add-function-delete_donations
+CREATE OR REPLACE FUNCTION delete_donations(_donation_ids bigint[])
+    RETURNS boolean[]
+    LANGUAGE plpgsql
+    AS
+    '
+        DECLARE
+            _applied boolean[];
+        BEGIN
+            IF coalesce(array_length(_donation_ids, 1), 0) = 0 THEN
+                return ARRAY[]::boolean[];
+            END IF;
+
+            -- Lock the donations to refund : a donation listed twice is only refunded once
+            select array_agg(r.found and r.occurrence = 1 order by r.position)
+                into _applied
+                from (select i.position,
+                             d.id is not null as found,
+                             row_number() over (partition by i.id order by i.position) as occurrence
+                      from unnest(_donation_ids) with ordinality as i(id, position)
+                      left join (select id from donations where id = any(_donation_ids) order by id for update) d on d.id = i.id) r;
+
+            insert into campaign_donation_counters (campaign_id, slot, amount)
+                select d.campaign_id, donation_counter_slot(), -sum(d.amount)
+                from donations d
+                where d.id = any(_donation_ids) group by d.campaign_id order by d.campaign_id
+                on conflict (campaign_id, slot) do update set amount = campaign_donation_counters.amount + excluded.amount;
+            insert into budget_donation_counters (budget_id, slot, amount)
+                select a.budget_id, donation_counter_slot(), -sum(d.amount)
+                from donations d
+                inner join accounts a on a.id = d.account_id
+                where d.id = any(_donation_ids) group by a.budget_id order by a.budget_id
+                on conflict (budget_id, slot) do update set amount = budget_donation_counters.amount + excluded.amount;
+            update accounts a set amount = (a.amount + t.total), updated_at = now()
+                from (select d.account_id, sum(d.amount) as total
+                      from donations d
+                      where d.id = any(_donation_ids) group by d.account_id) t
+                where a.id = t.account_id;
+            delete from donations where id = any(_donation_ids);
+
+            return _applied;
+        END;
+    ';
+--rollback drop function if exists delete_donations;
+
+--changeset lesprojetscagnottes:update-function-delete_donation
+CREATE OR REPLACE FUNCTION delete_donation(_donation_id bigint)
+    RETURNS boolean
+    LANGUAGE sql
+    AS 'select (delete_donations(ARRAY[_donation_id]))[1]';
+
+--changeset lesprojetscagnottes:add-function-refund_campaign
+CREATE OR REPLACE FUNCTION refund_campaign(_campaign_id bigint)
+    RETURNS integer
+    LANGUAGE plpgsql
+    AS
+    '
+        DECLARE
+            _refunded INT4;
+            _amount FLOAT4;
+        BEGIN
+            -- Wait for the donation batches already accepted for this campaign, later batches read its status once the refund commits
+            perform pg_advisory_xact_lock(hashtext(''campaign_donations''), CAST(_campaign_id % 2147483647 AS integer));
+
+            -- Lock the campaign, then its donors accounts in the same order as donation processing
+            perform 1 from campaigns where id = _campaign_id for no key update;
+            perform 1 from accounts
+                where id in (select account_id from donations where campaign_id = _campaign_id)
+                order by id for update;
+
+            select sum(amount) into _amount from donations where campaign_id = _campaign_id;
+            insert into campaign_donation_counters (campaign_id, slot, amount)
+                select _campaign_id, donation_counter_slot(), -sum(d.amount)
+                from donations d
+                where d.campaign_id = _campaign_id
+                having count(*) > 0
+                on conflict (campaign_id, slot) do update set amount = campaign_donation_counters.amount + excluded.amount;
+            insert into budget_donation_counters (budget_id, slot, amount)
+                select a.budget_id, donation_counter_slot(), -sum(d.amount)
+                from donations d
+                inner join accounts a on a.id = d.account_id
+                where d.campaign_id = _campaign_id group by a.budget_id order by a.budget_id
+                on conflict (budget_id, slot) do update set amount = budget_donation_counters.amount + excluded.amount;
+            update accounts a set amount = (a.amount + t.total), updated_at = now()
+                from (select d.account_id, sum(d.amount) as total
+                      from donations d
+                      where d.campaign_id = _campaign_id group by d.account_id) t
+                where a.id = t.account_id;
+            delete from donations where campaign_id = _campaign_id;
+            GET DIAGNOSTICS _refunded = ROW_COUNT;
+
+            -- Same delta as DonationOperationRepository.notifyFundings, delivered once the refund commits
+            IF _refunded > 0 THEN
+                perform pg_notify(''campaign_funding'', CAST(json_build_object(
+                    ''campaignId'', c.id, ''organizationId'', p.organization_id, ''amount'', -_amount, ''donations'', -_refunded) AS text))
+                    from campaigns c
+                    left join projects p on p.id = c.project_id
+                    where c.id = _campaign_id;
+            END IF;
+
+            return _refunded;
+        END;
+    ';
+--rollback drop function if exists refund_campaign;
+
+--changeset lesprojetscagnottes:add-function-compact_donation_counters
+CREATE OR REPLACE FUNCTION compact_donation_counters()
+    RETURNS integer
+    LANGUAGE plpgsql
+    AS
+    '
+        DECLARE
+            _campaign_ids INT8[];
+            _budget_ids INT8[];
+            _campaigns INT4;
+            _budgets INT4;
+        BEGIN
+            -- Rows locked by donations being processed are left for the next run, so compaction never waits on them
+            select array_agg(c.id)
+                into _campaign_ids
+                from (select id from campaigns
+                      where id in (select campaign_id from campaign_donation_counters)
+                      order by id for no key update skip locked) c;
+            with moved as (
+                delete from campaign_donation_counters
+                where (campaign_id, slot) in (select campaign_id, slot from campaign_donation_counters
+                                              where campaign_id = any(_campaign_ids) for update skip locked)
+                returning campaign_id, amount
+            )
+            update campaigns c set total_donations = coalesce(c.total_donations, 0) + t.total
+                from (select campaign_id, sum(amount) as total from moved group by campaign_id) t
+                where c.id = t.campaign_id;
+            GET DIAGNOSTICS _campaigns = ROW_COUNT;
+
+            select array_agg(b.id)
+                into _budget_ids
+                from (select id from budgets
+                      where id in (select budget_id from budget_donation_counters)
+                      order by id for no key update skip locked) b;
+            with moved as (
+                delete from budget_donation_counters
+                where (budget_id, slot) in (select budget_id, slot from budget_donation_counters
+                                            where budget_id = any(_budget_ids) for update skip locked)
+                returning budget_id, amount
+            )
+            update budgets b set total_donations = coalesce(b.total_donations, 0) + t.total
+                from (select budget_id, sum(amount) as total from moved group by budget_id) t
+                where b.id = t.budget_id;
+            GET DIAGNOSTICS _budgets = ROW_COUNT;
+
+            return _campaigns + _budgets;
+        END;
+    ';
+--rollback drop function if exists compact_donation_counters;
+
+--changeset lesprojetscagnottes:update-table-donation_operations-idempotency_key
+ALTER TABLE donation_operations ADD COLUMN IF NOT EXISTS idempotency_key character varying(255);
+CREATE UNIQUE INDEX IF NOT EXISTS donation_operations_idempotency_key_idx ON donation_operations (created_by, idempotency_key) WHERE idempotency_key IS NOT NULL;
+--rollback drop index donation_operations_idempotency_key_idx; alter table donation_operations drop column idempotency_key;
+
+--changeset lesprojetscagnottes:create-table-api_token_revocations
+CREATE TABLE IF NOT EXISTS api_token_revocations (
+    signature character varying(255) primary key,
+    expiration timestamp without time zone
+);
+--rollback drop table api_token_revocations;
+
+--changeset lesprojetscagnottes:create-table-project_scores
+CREATE TABLE IF NOT EXISTS project_scores (
+    project_id bigint primary key REFERENCES projects (id) ON DELETE CASCADE,
+    up bigint NOT NULL DEFAULT 0,
+    down bigint NOT NULL DEFAULT 0
+);
+INSERT INTO project_scores (project_id, up, down)
+    SELECT project_id, count(*) FILTER (WHERE type = 'UP'), count(*) FILTER (WHERE type = 'DOWN')
+    FROM votes WHERE project_id IS NOT NULL GROUP BY project_id
+    ON CONFLICT (project_id) DO NOTHING;
+--rollback drop table project_scores;
+
+--changeset lesprojetscagnottes:create-index-projects-ideas
+CREATE INDEX IF NOT EXISTS projects_organization_ideas_idx ON projects (organization_id, id) WHERE status = 'IDEA';
+--rollback drop index projects_organization_ideas_idx;
+
+--changeset lesprojetscagnottes:create-indexes-hot-lookups
+CREATE INDEX IF NOT EXISTS donations_campaign_idx ON donations (campaign_id, id);
+CREATE INDEX IF NOT EXISTS donations_account_idx ON donations (account_id, created_at);
+CREATE INDEX IF NOT EXISTS accounts_owner_budget_idx ON accounts (owner_id, budget_id);
+CREATE INDEX IF NOT EXISTS accounts_budget_idx ON accounts (budget_id);
+CREATE INDEX IF NOT EXISTS organizations_users_user_idx ON organizations_users (user_id);
+CREATE INDEX IF NOT EXISTS projects_organization_status_idx ON projects (organization_id, status);
+CREATE INDEX IF NOT EXISTS notifications_created_at_idx ON notifications (created_at);
+CREATE INDEX IF NOT EXISTS votes_project_user_idx ON votes (project_id, user_id);
+CREATE INDEX IF NOT EXISTS slack_user_slack_id_idx ON slack_user (slack_id);
+CREATE INDEX IF NOT EXISTS news_project_created_at_idx ON news (project_id, created_at);
+--rollback drop index donations_campaign_idx; drop index donations_account_idx; drop index accounts_owner_budget_idx; drop index accounts_budget_idx; drop index organizations_users_user_idx; drop index projects_organization_status_idx; drop index notifications_created_at_idx; drop index votes_project_user_idx; drop index slack_user_slack_id_idx; drop index news_project_created_at_idx;
+
+--changeset lesprojetscagnottes:create-indexes-keyset-pagination
+CREATE INDEX IF NOT EXISTS users_name_idx ON users ((coalesce(firstname, '')), (coalesce(lastname, '')), id);
+CREATE INDEX IF NOT EXISTS news_created_at_idx ON news (created_at, id);
+--rollback drop index users_name_idx; drop index news_created_at_idx;
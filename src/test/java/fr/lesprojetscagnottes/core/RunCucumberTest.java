@@ -15,6 +15,7 @@ import org.testcontainers.junit.jupiter.Testcontainers;
 @RunWith(Cucumber.class)
 @CucumberOptions(
         features = "classpath:features",
+        tags = "not @benchmark",
         plugin = {"pretty", "json:target/cucumber/report.json"},
         extraGlue = "fr.lesprojetscagnottes.core.component")
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
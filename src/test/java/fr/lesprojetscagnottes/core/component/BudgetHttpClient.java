@@ -14,10 +14,18 @@ public class BudgetHttpClient extends GenericHttpClient {
         get("/api/organization/" + organizationId + "/budgets");
     }
 
+    public void getAccounts(long budgetId, int limit, String after) {
+        get("/api/budget/" + budgetId + "/accounts?limit=" + limit + "&after=" + after);
+    }
+
     public void create(final BudgetModel budget) {
         post("/api/budget", context.getGson().toJson(budget));
     }
 
+    public void distribute(long budgetId) {
+        post("/api/budget/" + budgetId + "/distribute", "");
+    }
+
     public void save(final BudgetModel budget) {
         put("/api/budget", context.getGson().toJson(budget));
     }
@@ -1,9 +1,12 @@
 package fr.lesprojetscagnottes.core.component;
 
 import fr.lesprojetscagnottes.core.donation.model.DonationModel;
+import fr.lesprojetscagnottes.core.donation.service.DonationService;
 import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+
 import static io.cucumber.spring.CucumberTestContext.SCOPE_CUCUMBER_GLUE;
 
 @Component
@@ -14,4 +17,17 @@ public class DonationHttpClient extends GenericHttpClient {
         post("/api/donation", context.getGson().toJson(donation));
     }
 
+    public void create(final DonationModel donation, final String idempotencyKey) {
+        headers.put(DonationService.IDEMPOTENCY_KEY_HEADER, idempotencyKey);
+        try {
+            create(donation);
+        } finally {
+            headers.remove(DonationService.IDEMPOTENCY_KEY_HEADER);
+        }
+    }
+
+    public void createAll(final List<DonationModel> donations) {
+        postAll("/api/donation", donations.stream().map(donation -> context.getGson().toJson(donation)).toList());
+    }
+
 }
@@ -8,10 +8,12 @@ import org.springframework.http.*;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.BodyInserters;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import static io.cucumber.spring.CucumberTestContext.SCOPE_CUCUMBER_GLUE;
@@ -89,6 +91,34 @@ public class GenericHttpClient {
         }
     }
 
+    // All requests are sent at once, the last one to answer gives the HTTP code and body
+    protected void postAll(String endpoint, List<String> bodies) {
+        Flux.fromIterable(bodies)
+                .flatMap(body -> {
+                    WebClient.RequestHeadersSpec<?> request = client.post()
+                            .uri(endpoint)
+                            .body(BodyInserters.fromValue(body))
+                            .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                            .accept(MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML)
+                            .acceptCharset(StandardCharsets.UTF_8);
+                    for (Map.Entry<String, String> entry : headers.entrySet()) {
+                        request.header(entry.getKey(), entry.getValue());
+                    }
+                    return request
+                            .retrieve()
+                            .onStatus(HttpStatusCode::is4xxClientError, error -> {
+                                context.setLastHttpCode(error.statusCode().value());
+                                return Mono.empty();
+                            })
+                            .toEntity(String.class);
+                }, bodies.size())
+                .doOnNext(response -> {
+                    context.setLastHttpCode(response.getStatusCode().value());
+                    context.setLastBody(response.getBody());
+                })
+                .blockLast();
+    }
+
     protected void put(String endpoint, String body) {
         WebClient.RequestHeadersSpec<?> request = client.put()
                 .uri(endpoint)
@@ -0,0 +1,16 @@
+package fr.lesprojetscagnottes.core.component;
+
+import org.springframework.context.annotation.Scope;
+import org.springframework.stereotype.Component;
+
+import static io.cucumber.spring.CucumberTestContext.SCOPE_CUCUMBER_GLUE;
+
+@Component
+@Scope(SCOPE_CUCUMBER_GLUE)
+public class OrganizationHttpClient extends GenericHttpClient {
+
+    public void getMembers(long organizationId, int limit, String after) {
+        get("/api/organization/" + organizationId + "/members?limit=" + limit + "&after=" + after);
+    }
+
+}
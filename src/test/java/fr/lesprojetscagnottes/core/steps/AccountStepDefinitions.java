@@ -1,23 +1,41 @@
 package fr.lesprojetscagnottes.core.steps;
 
+import com.google.gson.reflect.TypeToken;
+import fr.lesprojetscagnottes.core.account.model.AccountModel;
+import fr.lesprojetscagnottes.core.authentication.model.AuthenticationResponseModel;
+import fr.lesprojetscagnottes.core.common.pagination.DataPage;
+import fr.lesprojetscagnottes.core.component.AuthenticationHttpClient;
+import fr.lesprojetscagnottes.core.component.BudgetHttpClient;
 import fr.lesprojetscagnottes.core.component.CucumberContext;
 import fr.lesprojetscagnottes.core.account.entity.AccountEntity;
 import fr.lesprojetscagnottes.core.account.repository.AccountRepository;
 import io.cucumber.datatable.DataTable;
+import io.cucumber.java.en.Then;
 import io.cucumber.java.en.When;
+import org.junit.Assert;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import java.lang.reflect.Type;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 public class AccountStepDefinitions {
 
+    @Autowired
+    private AuthenticationHttpClient authenticationHttpClient;
+
+    @Autowired
+    private BudgetHttpClient budgetHttpClient;
+
     @Autowired
     private AccountRepository accountRepository;
 
     @Autowired
     private CucumberContext context;
 
+    private DataPage<AccountModel> lastAccounts;
+
     @When("The following accounts are created")
     public void theFollowingAccountsAreCreated(DataTable table) {
 
@@ -39,4 +57,45 @@ public class AccountStepDefinitions {
         }
     }
 
+    @When("{string} gets {int} accounts of the {string} budget")
+    public void getsAccountsOfTheBudget(String userFirstname, int limit, String budgetName) {
+        getsAccountsOfTheBudget(userFirstname, limit, budgetName, "");
+    }
+
+    @When("{string} gets the next {int} accounts of the {string} budget")
+    public void getsTheNextAccountsOfTheBudget(String userFirstname, int limit, String budgetName) {
+        Assert.assertNotNull(lastAccounts.getNextCursor());
+        getsAccountsOfTheBudget(userFirstname, limit, budgetName, lastAccounts.getNextCursor());
+    }
+
+    @When("The last account returned is deleted")
+    public void theLastAccountReturnedIsDeleted() {
+        List<AccountModel> accounts = lastAccounts.getContent();
+        accountRepository.deleteById(accounts.get(accounts.size() - 1).getId());
+    }
+
+    @Then("It returns the accounts of the {string} budget owned by")
+    public void itReturnsTheAccountsOfTheBudgetOwnedBy(String budgetName, DataTable table) {
+        List<Long> expected = table.asList().stream()
+                .map(owner -> context.getAccounts().get(budgetName + "-" + owner).getId())
+                .collect(Collectors.toList());
+        Assert.assertEquals(expected, lastAccounts.getContent().stream().map(AccountModel::getId).collect(Collectors.toList()));
+    }
+
+    private void getsAccountsOfTheBudget(String userFirstname, int limit, String budgetName, String after) {
+
+        // Refresh Token
+        authenticationHttpClient.setBearerAuth(context.getAuths().get(userFirstname).getToken());
+        AuthenticationResponseModel response = authenticationHttpClient.refresh();
+        context.getAuths().put(userFirstname, response);
+
+        // Get accounts
+        budgetHttpClient.setBearerAuth(response.getToken());
+        budgetHttpClient.getAccounts(context.getBudgets().get(budgetName).getId(), limit, after);
+        if (context.getLastHttpCode() == 200) {
+            Type dataPageType = new TypeToken<DataPage<AccountModel>>(){}.getType();
+            lastAccounts = context.getGson().fromJson(context.getLastBody(), dataPageType);
+        }
+    }
+
 }
@@ -1,5 +1,6 @@
 package fr.lesprojetscagnottes.core.steps;
 
+import fr.lesprojetscagnottes.core.account.repository.AccountRepository;
 import fr.lesprojetscagnottes.core.component.AuthenticationHttpClient;
 import fr.lesprojetscagnottes.core.component.BudgetHttpClient;
 import fr.lesprojetscagnottes.core.component.CucumberContext;
@@ -7,13 +8,19 @@ import fr.lesprojetscagnottes.core.budget.entity.BudgetEntity;
 import fr.lesprojetscagnottes.core.authentication.model.AuthenticationResponseModel;
 import fr.lesprojetscagnottes.core.budget.model.BudgetModel;
 import fr.lesprojetscagnottes.core.budget.repository.BudgetRepository;
+import fr.lesprojetscagnottes.core.user.repository.UserRepository;
 import io.cucumber.datatable.DataTable;
 import io.cucumber.java.en.And;
 import io.cucumber.java.en.Given;
 import io.cucumber.java.en.Then;
 import io.cucumber.java.en.When;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.Assert;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 
 import java.sql.Date;
 import java.time.LocalDate;
@@ -22,17 +29,30 @@ import java.util.*;
 import static java.time.temporal.TemporalAdjusters.firstDayOfYear;
 import static java.time.temporal.TemporalAdjusters.lastDayOfYear;
 
+@Slf4j
 public class BudgetStepDefinitions {
 
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size}")
+    private int batchSize;
+
     @Autowired
     private AuthenticationHttpClient authenticationHttpClient;
 
     @Autowired
     private BudgetHttpClient budgetHttpClient;
 
+    @Autowired
+    private AccountRepository accountRepository;
+
     @Autowired
     private BudgetRepository budgetRepository;
 
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
     @Autowired
     private CucumberContext context;
 
@@ -239,4 +259,32 @@ public class BudgetStepDefinitions {
         Assert.assertEquals(0, budgetsReturned.size());
     }
 
+    // Statistics cover the whole session factory, background tasks may add a few statements to the count
+    @When("{string} distributes the {string} budget")
+    public void distributesTheBudget(String userFirstname, String budgetName) {
+
+        // Refresh Token
+        authenticationHttpClient.setBearerAuth(context.getAuths().get(userFirstname).getToken());
+        AuthenticationResponseModel response = authenticationHttpClient.refresh();
+        context.getAuths().put(userFirstname, response);
+
+        // Distribute budget
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        boolean statisticsEnabled = statistics.isStatisticsEnabled();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+        long start = System.nanoTime();
+        budgetHttpClient.setBearerAuth(response.getToken());
+        budgetHttpClient.distribute(context.getBudgets().get(budgetName).getId());
+        long duration = (System.nanoTime() - start) / 1_000_000;
+        log.info("Budget {} distributed in {} ms with {} statements, JDBC batch size {}", budgetName, duration, statistics.getPrepareStatementCount(), batchSize);
+        statistics.setStatisticsEnabled(statisticsEnabled);
+    }
+
+    @Then("Every member of organization {string} has an account on the {string} budget")
+    public void everyMemberOfOrganizationHasAnAccountOnTheBudget(String organizationName, String budgetName) {
+        int members = userRepository.findAllByOrganizations_id(context.getOrganizations().get(organizationName).getId()).size();
+        Assert.assertEquals(members, accountRepository.findAllByBudgetId(context.getBudgets().get(budgetName).getId()).size());
+    }
+
 }
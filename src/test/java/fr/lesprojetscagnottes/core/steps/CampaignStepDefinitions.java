@@ -4,12 +4,16 @@ import fr.lesprojetscagnottes.core.budget.repository.BudgetRepository;
 import fr.lesprojetscagnottes.core.campaign.entity.CampaignEntity;
 import fr.lesprojetscagnottes.core.campaign.model.CampaignStatus;
 import fr.lesprojetscagnottes.core.campaign.repository.CampaignRepository;
+import fr.lesprojetscagnottes.core.campaign.scheduler.CampaignScheduler;
 import fr.lesprojetscagnottes.core.component.CucumberContext;
 import fr.lesprojetscagnottes.core.organization.repository.OrganizationRepository;
 import fr.lesprojetscagnottes.core.project.repository.ProjectRepository;
 import io.cucumber.datatable.DataTable;
 import io.cucumber.java.en.And;
+import io.cucumber.java.en.Then;
+import io.cucumber.java.en.When;
 import org.apache.commons.lang3.StringUtils;
+import org.junit.Assert;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import java.sql.Date;
@@ -28,6 +32,9 @@ public class CampaignStepDefinitions {
     @Autowired
     private CampaignRepository campaignRepository;
 
+    @Autowired
+    private CampaignScheduler campaignScheduler;
+
     @Autowired
     private OrganizationRepository organizationRepository;
 
@@ -52,6 +59,7 @@ public class CampaignStepDefinitions {
             campaign.setTitle(StringUtils.isNotEmpty(columns.get("title")) ? columns.get("title") : "Awesome title");
             campaign.setStatus(CampaignStatus.valueOf(columns.get("status")));
             campaign.setDonationsRequired(Float.valueOf(columns.get("donationsRequired")));
+            campaign.setTotalRequired(campaign.getDonationsRequired());
             campaign.setFundingDeadline(Date.valueOf(fundingDeadline));
             campaign = campaignRepository.save(campaign);
 
@@ -78,6 +86,7 @@ public class CampaignStepDefinitions {
             campaign.setTitle(columns.get("title"));
             campaign.setStatus(CampaignStatus.valueOf(columns.get("status")));
             campaign.setDonationsRequired(Float.valueOf(columns.get("donationsRequired")));
+            campaign.setTotalRequired(campaign.getDonationsRequired());
             campaign.setFundingDeadline(Date.valueOf(fundingDeadline));
             campaign = campaignRepository.save(campaign);
 
@@ -86,5 +95,15 @@ public class CampaignStepDefinitions {
         }
     }
 
+    @When("The funding deadlines of campaigns are processed")
+    public void theFundingDeadlinesOfCampaignsAreProcessed() {
+        campaignScheduler.processCampaignFundingDeadlines();
+    }
+
+    @Then("The {string} campaign is {string}")
+    public void theCampaignIs(String title, String status) {
+        CampaignEntity campaign = campaignRepository.findById(context.getCampaigns().get(title).getId()).orElseThrow();
+        Assert.assertEquals(CampaignStatus.valueOf(status), campaign.getStatus());
+    }
 
 }
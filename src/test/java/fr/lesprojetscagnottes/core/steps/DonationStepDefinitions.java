@@ -2,6 +2,7 @@ package fr.lesprojetscagnottes.core.steps;
 
 import com.google.gson.reflect.TypeToken;
 import fr.lesprojetscagnottes.core.account.entity.AccountEntity;
+import fr.lesprojetscagnottes.core.account.repository.AccountRepository;
 import fr.lesprojetscagnottes.core.authentication.model.AuthenticationResponseModel;
 import fr.lesprojetscagnottes.core.common.pagination.DataPage;
 import fr.lesprojetscagnottes.core.component.AuthenticationHttpClient;
@@ -9,19 +10,35 @@ import fr.lesprojetscagnottes.core.component.CampaignHttpClient;
 import fr.lesprojetscagnottes.core.component.CucumberContext;
 import fr.lesprojetscagnottes.core.component.DonationHttpClient;
 import fr.lesprojetscagnottes.core.donation.entity.DonationEntity;
+import fr.lesprojetscagnottes.core.donation.entity.DonationOperationEntity;
+import fr.lesprojetscagnottes.core.donation.entity.DonationReconciliationEntity;
+import fr.lesprojetscagnottes.core.donation.model.DonationMismatchType;
 import fr.lesprojetscagnottes.core.donation.model.DonationModel;
+import fr.lesprojetscagnottes.core.donation.model.DonationOperationModel;
+import fr.lesprojetscagnottes.core.donation.model.DonationReconciliationStatus;
+import fr.lesprojetscagnottes.core.donation.queue.DonationOperationStatus;
+import fr.lesprojetscagnottes.core.donation.repository.DonationOperationRepository;
+import fr.lesprojetscagnottes.core.donation.repository.DonationReconciliationMismatchRepository;
+import fr.lesprojetscagnottes.core.donation.repository.DonationReconciliationRepository;
 import fr.lesprojetscagnottes.core.donation.repository.DonationRepository;
+import fr.lesprojetscagnottes.core.donation.task.DonationReconciliationTask;
 import io.cucumber.datatable.DataTable;
+import io.cucumber.java.After;
 import io.cucumber.java.en.Given;
 import io.cucumber.java.en.Then;
 import io.cucumber.java.en.When;
 import org.junit.Assert;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
 
 import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.BooleanSupplier;
 
 public class DonationStepDefinitions {
 
@@ -34,12 +51,59 @@ public class DonationStepDefinitions {
     @Autowired
     private CampaignHttpClient campaignHttpClient;
 
+    @Autowired
+    private AccountRepository accountRepository;
+
     @Autowired
     private DonationRepository donationRepository;
 
+    @Autowired
+    private DonationOperationRepository donationOperationRepository;
+
+    @Autowired
+    private DonationReconciliationRepository donationReconciliationRepository;
+
+    @Autowired
+    private DonationReconciliationMismatchRepository donationReconciliationMismatchRepository;
+
+    @Autowired
+    private DonationReconciliationTask donationReconciliationTask;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
     @Autowired
     private CucumberContext context;
 
+    private long reconciliationId;
+
+    private final Map<String, Long> idempotentOperations = new HashMap<>();
+
+    // Keys are remembered across scenarios for the same user, so each scenario uses its own
+    private final String idempotencyKeySuffix = "-" + CucumberContext.generateId();
+
+    @After
+    public void removePlantedFailures() {
+        jdbcTemplate.execute("DROP TRIGGER IF EXISTS cucumber_failing_donations ON donations");
+        jdbcTemplate.execute("DROP FUNCTION IF EXISTS cucumber_failing_donations");
+    }
+
+    @Given("Donations to the {string} campaign fail with a serialization failure")
+    public void donationsToTheCampaignFail(String campaign) {
+        long campaignId = context.getCampaigns().get(campaign).getId();
+        jdbcTemplate.execute("CREATE FUNCTION cucumber_failing_donations() RETURNS trigger LANGUAGE plpgsql AS $$ BEGIN " +
+                "IF NEW.campaign_id = " + campaignId + " THEN RAISE EXCEPTION 'Planted failure' USING ERRCODE = 'serialization_failure'; END IF; " +
+                "RETURN NEW; END $$");
+        jdbcTemplate.execute("CREATE TRIGGER cucumber_failing_donations BEFORE INSERT ON donations FOR EACH ROW EXECUTE FUNCTION cucumber_failing_donations()");
+    }
+
+    @Given("The amount of the {string} account of {string} is set to {string}")
+    public void theAmountOfTheAccountIsSetTo(String budgetName, String userFirstname, String amount) {
+        AccountEntity account = accountRepository.findById(context.getAccounts().get(budgetName + "-" + userFirstname).getId()).orElseThrow();
+        account.setAmount(Float.parseFloat(amount));
+        accountRepository.save(account);
+    }
+
     @Given("The following donations are made")
     public void theFollowingDonationsAreMade(DataTable table) {
         List<Map<String, String>> rows = table.asMaps(String.class, String.class);
@@ -77,6 +141,106 @@ public class DonationStepDefinitions {
         }
     }
 
+    @When("{string} submit the following donation with the idempotency key {string}")
+    public void submitTheFollowingDonationWithTheIdempotencyKey(String userFirstname, String idempotencyKey, DataTable table) {
+        Map<String, String> columns = table.asMaps(String.class, String.class).get(0);
+
+        // Create donation
+        DonationEntity donation = new DonationEntity();
+        donation.setAmount(Float.parseFloat(columns.get("amount")));
+        donation.setAccount(context.getAccounts().get(columns.get("budget") + "-" + userFirstname));
+        donation.setCampaign(context.getCampaigns().get(columns.get("campaign")));
+
+        // Refresh Token
+        authenticationHttpClient.setBearerAuth(context.getAuths().get(userFirstname).getToken());
+        AuthenticationResponseModel response = authenticationHttpClient.refresh();
+        context.getAuths().put(userFirstname, response);
+
+        // Make donation and remember the operation first submitted with the key
+        donationHttpClient.setBearerAuth(response.getToken());
+        donationHttpClient.create(DonationModel.fromEntity(donation), idempotencyKey + idempotencyKeySuffix);
+        if (context.getLastHttpCode() == 202) {
+            DonationOperationModel operation = context.getGson().fromJson(context.getLastBody(), DonationOperationModel.class);
+            idempotentOperations.putIfAbsent(idempotencyKey, operation.getId());
+        }
+    }
+
+    @Then("It returns the donation operation first submitted with the idempotency key {string} as {string}")
+    public void itReturnsTheDonationOperationFirstSubmittedWithTheIdempotencyKey(String idempotencyKey, String status) {
+        DonationOperationModel operation = context.getGson().fromJson(context.getLastBody(), DonationOperationModel.class);
+        Assert.assertEquals(idempotentOperations.get(idempotencyKey), operation.getId());
+        Assert.assertEquals(DonationOperationStatus.valueOf(status), operation.getStatus());
+    }
+
+    @When("{string} submit the following donations at the same time")
+    public void submitTheFollowingDonationsAtTheSameTime(String userFirstname, DataTable table) {
+        List<Map<String, String>> rows = table.asMaps(String.class, String.class);
+
+        List<DonationModel> donations = new ArrayList<>();
+        DonationEntity donation;
+        for (Map<String, String> columns : rows) {
+            donation = new DonationEntity();
+            donation.setAmount(Float.parseFloat(columns.get("amount")));
+            donation.setAccount(context.getAccounts().get(columns.get("budget") + "-" + userFirstname));
+            donation.setCampaign(context.getCampaigns().get(columns.get("campaign")));
+            donations.add(DonationModel.fromEntity(donation));
+        }
+
+        // Refresh Token
+        authenticationHttpClient.setBearerAuth(context.getAuths().get(userFirstname).getToken());
+        AuthenticationResponseModel response = authenticationHttpClient.refresh();
+        context.getAuths().put(userFirstname, response);
+
+        // Make donations
+        donationHttpClient.setBearerAuth(response.getToken());
+        donationHttpClient.createAll(donations);
+    }
+
+    @When("A full donation reconciliation is run")
+    public void aFullDonationReconciliationIsRun() {
+        runDonationReconciliation(false);
+    }
+
+    @When("An incremental donation reconciliation is run")
+    public void anIncrementalDonationReconciliationIsRun() {
+        runDonationReconciliation(true);
+        Assert.assertTrue(donationReconciliationRepository.findById(reconciliationId).orElseThrow().isIncremental());
+    }
+
+    @Then("Donation operations on the {string} account of {string} are processed")
+    public void donationOperationsOnTheAccountAreProcessed(String budgetName, String userFirstname) {
+        AccountEntity account = context.getAccounts().get(budgetName + "-" + userFirstname);
+        waitUntil(() -> operationsOf(account).stream().noneMatch(operation -> operation.getStatus() == DonationOperationStatus.PENDING));
+    }
+
+    @Then("{string} donation operation(s) on the {string} account of {string} is/are {string}")
+    public void donationOperationsOnTheAccountAre(String nbOperations, String budgetName, String userFirstname, String status) {
+        AccountEntity account = context.getAccounts().get(budgetName + "-" + userFirstname);
+        long operations = operationsOf(account).stream()
+                .filter(operation -> operation.getStatus() == DonationOperationStatus.valueOf(status))
+                .count();
+        Assert.assertEquals(Long.parseLong(nbOperations), operations);
+    }
+
+    @Then("Donation operations on the {string} account of {string} were attempted {string} times")
+    public void donationOperationsOnTheAccountWereAttempted(String budgetName, String userFirstname, String attempts) {
+        AccountEntity account = context.getAccounts().get(budgetName + "-" + userFirstname);
+        operationsOf(account).forEach(operation -> Assert.assertEquals(Integer.parseInt(attempts), operation.getAttempts()));
+    }
+
+    @Then("The {string} account of {string} has an amount of {string}")
+    public void theAccountHasAnAmountOf(String budgetName, String userFirstname, String amount) {
+        AccountEntity account = accountRepository.findById(context.getAccounts().get(budgetName + "-" + userFirstname).getId()).orElseThrow();
+        Assert.assertEquals(Float.parseFloat(amount), account.getAmount(), 0.01);
+    }
+
+    @Then("The reconciliation records an {string} mismatch on the {string} account of {string}")
+    public void theReconciliationRecordsAMismatchOnTheAccount(String type, String budgetName, String userFirstname) {
+        AccountEntity account = context.getAccounts().get(budgetName + "-" + userFirstname);
+        Assert.assertTrue(donationReconciliationMismatchRepository.findAllByReconciliationIdOrderByIdAsc(reconciliationId, Pageable.unpaged()).stream()
+                .anyMatch(mismatch -> mismatch.getType() == DonationMismatchType.valueOf(type) && mismatch.getEntityId().equals(account.getId())));
+    }
+
     @Then("It returns following donations")
     public void itReturnsFollowingDonations(DataTable table) {
         List<Map<String, String>> rows = table.asMaps(String.class, String.class);
@@ -128,4 +292,33 @@ public class DonationStepDefinitions {
         Set<DonationEntity> donations = donationRepository.findAllByAccountId(account.getId());
         Assert.assertEquals(Integer.valueOf(nbDonations), Integer.valueOf(donations.size()));
     }
+
+    private void runDonationReconciliation(boolean incremental) {
+        reconciliationId = donationReconciliationTask.start(incremental).getId();
+        waitUntil(() -> donationReconciliationRepository.findById(reconciliationId)
+                .map(DonationReconciliationEntity::getStatus)
+                .filter(status -> status != DonationReconciliationStatus.RUNNING)
+                .isPresent());
+        Assert.assertEquals(DonationReconciliationStatus.FINISHED, donationReconciliationRepository.findById(reconciliationId).orElseThrow().getStatus());
+    }
+
+    private List<DonationOperationEntity> operationsOf(AccountEntity account) {
+        return donationOperationRepository.findAll().stream()
+                .filter(operation -> operation.getAccountId().equals(account.getId()))
+                .toList();
+    }
+
+    // Donations are processed by background workers, so outcomes are polled for
+    private void waitUntil(BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (!condition.getAsBoolean()) {
+            Assert.assertTrue("Timed out", System.currentTimeMillis() < deadline);
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                Assert.fail();
+            }
+        }
+    }
 }
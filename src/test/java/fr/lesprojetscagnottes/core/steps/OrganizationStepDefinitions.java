@@ -0,0 +1,131 @@
+package fr.lesprojetscagnottes.core.steps;
+
+import com.google.gson.reflect.TypeToken;
+import fr.lesprojetscagnottes.core.authentication.model.AuthenticationResponseModel;
+import fr.lesprojetscagnottes.core.authorization.name.AuthorityName;
+import fr.lesprojetscagnottes.core.authorization.repository.AuthorityRepository;
+import fr.lesprojetscagnottes.core.common.pagination.DataPage;
+import fr.lesprojetscagnottes.core.component.AuthenticationHttpClient;
+import fr.lesprojetscagnottes.core.component.CucumberContext;
+import fr.lesprojetscagnottes.core.component.OrganizationHttpClient;
+import fr.lesprojetscagnottes.core.organization.entity.OrganizationEntity;
+import fr.lesprojetscagnottes.core.organization.repository.OrganizationRepository;
+import fr.lesprojetscagnottes.core.user.entity.UserEntity;
+import fr.lesprojetscagnottes.core.user.model.UserModel;
+import fr.lesprojetscagnottes.core.user.repository.UserRepository;
+import io.cucumber.java.en.And;
+import io.cucumber.java.en.Then;
+import io.cucumber.java.en.When;
+import org.junit.Assert;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.lang.reflect.Type;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+public class OrganizationStepDefinitions {
+
+    private static final int MAX_PAGES = 100;
+
+    @Autowired
+    private AuthenticationHttpClient authenticationHttpClient;
+
+    @Autowired
+    private OrganizationHttpClient organizationHttpClient;
+
+    @Autowired
+    private AuthorityRepository authorityRepository;
+
+    @Autowired
+    private OrganizationRepository organizationRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private CucumberContext context;
+
+    private final List<Long> membersReturned = new ArrayList<>();
+
+    @And("{int} users named {string} {string} are members of organization {string}")
+    public void usersNamedAreMembersOfOrganization(int count, String firstname, String lastname, String organizationName) {
+        OrganizationEntity organization = organizationRepository.findById(context.getOrganizations().get(organizationName).getId()).orElse(null);
+        Assert.assertNotNull(organization);
+
+        UserEntity user;
+        for (int i = 0; i < count; i++) {
+
+            // Create user, these homonyms are not saved in Test Map
+            user = new UserEntity();
+            user.setUsername(firstname + "." + lastname + i + "@unnamedcompany.com");
+            user.setEmail(user.getUsername());
+            user.setPassword(passwordEncoder.encode(firstname));
+            user.setLastPasswordResetDate(Date.valueOf(LocalDate.now()));
+            user.setFirstname(firstname);
+            user.setLastname(lastname);
+            user.setEnabled(true);
+            user.getUserAuthorities().add(authorityRepository.findByName(AuthorityName.ROLE_USER));
+            organization.getMembers().add(userRepository.save(user));
+        }
+        organizationRepository.save(organization);
+    }
+
+    // Members are inserted in bulk, creating them one by one would outlast the operations measured on them
+    @And("{int} members join organization {string}")
+    public void membersJoinOrganization(int count, String organizationName) {
+        jdbcTemplate.update("insert into users (id, username, email, password, enabled, lastpasswordresetdate, firstname, lastname) " +
+                "select nextval('users_seq'), 'member' || g || '@unnamedcompany.com', 'member' || g || '@unnamedcompany.com', '', true, now(), 'Member', cast(g as text) " +
+                "from generate_series(1, ?) g", count);
+        jdbcTemplate.update("insert into organizations_users (organization_id, user_id) select ?, id from users where email like 'member%@unnamedcompany.com'",
+                context.getOrganizations().get(organizationName).getId());
+    }
+
+    @When("{string} pages through the members of organization {string} {int} at a time")
+    public void pagesThroughTheMembersOfOrganization(String userFirstname, String organizationName, int limit) {
+        long organizationId = context.getOrganizations().get(organizationName).getId();
+        Type dataPageType = new TypeToken<DataPage<UserModel>>(){}.getType();
+
+        // Refresh Token
+        authenticationHttpClient.setBearerAuth(context.getAuths().get(userFirstname).getToken());
+        AuthenticationResponseModel response = authenticationHttpClient.refresh();
+        context.getAuths().put(userFirstname, response);
+        organizationHttpClient.setBearerAuth(response.getToken());
+
+        // Follow next cursors from the first page, an empty cursor, until the last page
+        String after = "";
+        for (int page = 0; after != null; page++) {
+            Assert.assertTrue("More than " + MAX_PAGES + " pages returned", page < MAX_PAGES);
+            organizationHttpClient.getMembers(organizationId, limit, after);
+            Assert.assertEquals(200, context.getLastHttpCode());
+
+            DataPage<UserModel> body = context.getGson().fromJson(context.getLastBody(), dataPageType);
+            Assert.assertTrue(body.getContent().size() <= limit);
+            body.getContent().forEach(member -> membersReturned.add(member.getId()));
+            after = body.getNextCursor();
+        }
+    }
+
+    @Then("Every member of organization {string} is returned once")
+    public void everyMemberOfOrganizationIsReturnedOnce(String organizationName) {
+        Set<Long> members = userRepository.findAllByOrganizations_id(context.getOrganizations().get(organizationName).getId())
+                .stream()
+                .map(UserEntity::getId)
+                .collect(Collectors.toSet());
+        Assert.assertEquals(membersReturned.size(), new HashSet<>(membersReturned).size());
+        Assert.assertEquals(members, new HashSet<>(membersReturned));
+    }
+
+}
@@ -3,20 +3,27 @@ package fr.lesprojetscagnottes.core.steps;
 import fr.lesprojetscagnottes.core.component.AuthenticationHttpClient;
 import fr.lesprojetscagnottes.core.component.CucumberContext;
 import fr.lesprojetscagnottes.core.component.ProjectHttpClient;
+import fr.lesprojetscagnottes.core.component.StatementCapture;
 import fr.lesprojetscagnottes.core.project.entity.ProjectEntity;
 import fr.lesprojetscagnottes.core.authentication.model.AuthenticationResponseModel;
 import fr.lesprojetscagnottes.core.project.model.ProjectModel;
 import fr.lesprojetscagnottes.core.project.model.ProjectStatus;
 import fr.lesprojetscagnottes.core.project.repository.ProjectRepository;
+import fr.lesprojetscagnottes.core.project.service.ProjectService;
 import io.cucumber.datatable.DataTable;
 import io.cucumber.java.en.Given;
 import io.cucumber.java.en.Then;
 import io.cucumber.java.en.When;
 import org.junit.Assert;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.security.Principal;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 public class ProjectStepDefinitions {
 
@@ -29,6 +36,12 @@ public class ProjectStepDefinitions {
     @Autowired
     private ProjectRepository projectRepository;
 
+    @Autowired
+    private ProjectService projectService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
     @Autowired
     private CucumberContext context;
 
@@ -115,4 +128,27 @@ public class ProjectStepDefinitions {
         Assert.assertEquals(0, projectsReturned.size());
     }
 
+    // Projects are mapped in one transaction, as the request does with the session kept open for the view
+    @Then("Getting the following projects as {string} costs as many statements as getting the first one")
+    public void gettingTheFollowingProjectsCostsAsManyStatementsAsGettingTheFirstOne(String userFirstname, DataTable table) {
+        List<Map<String, String>> rows = table.asMaps(String.class, String.class);
+
+        Set<Long> ids = new LinkedHashSet<>();
+        for (Map<String, String> columns : rows) {
+            ids.add(context.getProjects().get(columns.get("title")).getId());
+        }
+        Set<Long> first = Set.of(ids.iterator().next());
+        Principal principal = new UsernamePasswordAuthenticationToken(context.getUsers().get(userFirstname).getEmail(), null);
+
+        // The first call resolves the principal and its authorizations, which are cached afterwards
+        transactionTemplate.execute(status -> projectService.getByIds(principal, first));
+        List<String> statementsForOne = StatementCapture.capture(() -> transactionTemplate.execute(status -> projectService.getByIds(principal, first)));
+        List<String> statementsForAll = StatementCapture.capture(() -> transactionTemplate.execute(status -> {
+            Assert.assertEquals(ids.size(), projectService.getByIds(principal, ids).size());
+            return null;
+        }));
+
+        Assert.assertEquals(String.join("\n", statementsForAll), statementsForOne.size(), statementsForAll.size());
+    }
+
 }
@@ -0,0 +1,185 @@
+package fr.lesprojetscagnottes.core.steps;
+
+import fr.lesprojetscagnottes.core.account.repository.AccountRepository;
+import fr.lesprojetscagnottes.core.component.StatementCapture;
+import fr.lesprojetscagnottes.core.donation.repository.DonationRepository;
+import fr.lesprojetscagnottes.core.news.repository.NewsRepository;
+import fr.lesprojetscagnottes.core.notification.repository.NotificationRepository;
+import fr.lesprojetscagnottes.core.project.model.ProjectStatus;
+import fr.lesprojetscagnottes.core.project.repository.ProjectRepository;
+import fr.lesprojetscagnottes.core.providers.slack.repository.SlackUserRepository;
+import fr.lesprojetscagnottes.core.user.repository.UserRepository;
+import fr.lesprojetscagnottes.core.vote.repository.VoteRepository;
+import io.cucumber.java.en.Then;
+import io.cucumber.java.en.When;
+import org.junit.Assert;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+public class QueryPlanStepDefinitions {
+
+    private static final int POPULATED_ROWS = 10000;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private DonationRepository donationRepository;
+
+    @Autowired
+    private NewsRepository newsRepository;
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    @Autowired
+    private ProjectRepository projectRepository;
+
+    @Autowired
+    private SlackUserRepository slackUserRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private VoteRepository voteRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private List<String> plan;
+
+    private Map<String, Supplier<?>> lookups() {
+        Map<String, Supplier<?>> lookups = new HashMap<>();
+        lookups.put("donations of a campaign", () -> donationRepository.findByCampaign_idOrderByIdAsc(1L, PageRequest.of(0, 10)));
+        lookups.put("donations of accounts", () -> donationRepository.findAllByAccountIdInOrderByCreatedAtAsc(Set.of(1L, 2L)));
+        lookups.put("account of an owner in a budget", () -> accountRepository.findByOwnerIdAndBudgetId(1L, 1L));
+        lookups.put("accounts of a budget", () -> accountRepository.findAllByBudgetIdOrderByUser(1L, PageRequest.of(0, 10)));
+        lookups.put("authorizations of a user", () -> userRepository.findAuthorizationsById(1L));
+        lookups.put("projects of an organization", () -> projectRepository.findAllSummariesByOrganizationIdAndStatusIn(1L, Set.of(ProjectStatus.IDEA, ProjectStatus.IN_PROGRESS), PageRequest.of(0, 10)));
+        lookups.put("notifications since a date", () -> notificationRepository.findAllByCreatedAtGreaterThan(new Date()));
+        lookups.put("vote of a user on a project", () -> voteRepository.findOneByProjectIdAndUserId(1L, 1L));
+        lookups.put("Slack user by Slack ID", () -> slackUserRepository.findBySlackId("U01"));
+        lookups.put("latest news of a project", () -> newsRepository.findFirstByProjectIdAndCreatedAtGreaterThanOrderByCreatedAtDesc(1L, new Date()));
+        return lookups;
+    }
+
+    @When("The {string} lookup is explained against a populated {string} table")
+    public void theLookupIsExplained(String lookup, String table) {
+        Supplier<?> work = lookups().get(lookup);
+        Assert.assertNotNull("Unknown lookup " + lookup, work);
+        List<String> statements = StatementCapture.capture(work);
+        Assert.assertFalse(statements.isEmpty());
+
+        // Rows and statistics only live in this transaction, so that the planner weighs the index against a table of realistic size
+        plan = jdbcTemplate.execute((ConnectionCallback<List<String>>) connection -> {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("SET LOCAL session_replication_role = replica");
+                statement.execute(populate(connection, table));
+                statement.execute("ANALYZE " + table);
+
+                // A generic plan does not depend on the values bound, any value of the right type does
+                statement.execute("SET LOCAL plan_cache_mode = force_generic_plan");
+                List<String> lines = new ArrayList<>();
+                for (String sql : statements) {
+                    lines.addAll(explain(connection, sql));
+                }
+                return lines;
+            } finally {
+                connection.rollback();
+                connection.setAutoCommit(autoCommit);
+            }
+        });
+    }
+
+    // Walking the whole primary key to filter rows is as bad as a sequential scan
+    @Then("The plan reads {string} through a secondary index")
+    public void thePlanReadsThroughASecondaryIndex(String table) {
+        Pattern fullScan = Pattern.compile("Seq Scan on " + Pattern.quote(table) + "\\b|\\b" + Pattern.quote(table) + "_pkey\\b");
+        Assert.assertFalse(String.join("\n", plan), plan.stream().anyMatch(line -> fullScan.matcher(line).find()));
+    }
+
+    // Unique columns get a distinct value per row, other columns a thousand distinct values
+    private static String populate(Connection connection, String table) throws SQLException {
+        List<String> columns = new ArrayList<>();
+        List<String> values = new ArrayList<>();
+        String sql = "SELECT c.column_name, c.data_type, c.character_maximum_length, " +
+                "EXISTS (SELECT 1 FROM pg_index i INNER JOIN pg_attribute a ON a.attrelid = i.indrelid AND a.attnum = ANY(i.indkey) " +
+                "    WHERE i.indrelid = CAST(c.table_name AS regclass) AND i.indisunique AND a.attname = c.column_name) " +
+                "FROM information_schema.columns c WHERE c.table_schema = current_schema() AND c.table_name = ? AND c.is_generated = 'NEVER' " +
+                "ORDER BY c.ordinal_position";
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setString(1, table);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    String value = value(resultSet.getString(2), resultSet.getInt(3), resultSet.getBoolean(4) ? "g" : "g % 1000");
+                    if (value != null) {
+                        columns.add("\"" + resultSet.getString(1) + "\"");
+                        values.add(value);
+                    }
+                }
+            }
+        }
+        return "INSERT INTO " + table + " (" + String.join(", ", columns) + ") SELECT " + String.join(", ", values) +
+                " FROM generate_series(1000000001, " + (1000000000 + POPULATED_ROWS) + ") g";
+    }
+
+    private static String value(String type, int length, String number) {
+        return switch (type) {
+            case "smallint", "integer", "bigint", "real", "double precision", "numeric" -> number;
+            case "character varying", "character", "text" -> length > 0 ? "left('v' || g, " + length + ")" : "'v' || g";
+            case "timestamp without time zone", "timestamp with time zone", "date" -> "now() - (g % 100000) * interval '1 minute'";
+            case "boolean" -> "g % 2 = 0";
+            default -> null;
+        };
+    }
+
+    private static List<String> explain(Connection connection, String sql) throws SQLException {
+        int parameters = 0;
+        StringBuilder prepared = new StringBuilder();
+        for (char c : sql.toCharArray()) {
+            if (c == '?') {
+                prepared.append('$').append(++parameters);
+            } else {
+                prepared.append(c);
+            }
+        }
+        List<String> lines = new ArrayList<>();
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("PREPARE query_plan AS " + prepared);
+            List<String> arguments = new ArrayList<>();
+            try (ResultSet resultSet = statement.executeQuery("SELECT unnest(parameter_types) FROM pg_prepared_statements WHERE name = 'query_plan'")) {
+                while (resultSet.next()) {
+                    arguments.add("CAST(NULL AS " + resultSet.getString(1) + ")");
+                }
+            }
+            String execute = "EXECUTE query_plan" + (arguments.isEmpty() ? "" : "(" + String.join(", ", arguments) + ")");
+            try (ResultSet resultSet = statement.executeQuery("EXPLAIN " + execute)) {
+                while (resultSet.next()) {
+                    lines.add(resultSet.getString(1));
+                }
+            }
+            statement.execute("DEALLOCATE query_plan");
+        }
+        return lines;
+    }
+
+}
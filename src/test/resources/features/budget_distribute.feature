@@ -0,0 +1,30 @@
+@benchmark
+Feature: Budget - Distribute
+  Measures the distribution of a budget to a large organization, it is excluded from the default run.
+  Run it with the benchmark Maven profile, and again with -Dspring.jpa.properties.hibernate.jdbc.batch_size=1 to compare with unbatched writes.
+
+  Scenario: A sponsor distributes a budget to 2000 members
+    Given Empty database
+    And The following organizations are registered
+      | name            |
+      | Unnamed Company |
+    And The following users are registered
+      | firstname | email                      | password |
+      | Sabrina   | sabrina@unnamedcompany.com | sabrina  |
+    And The following users are members of organizations
+      | user    | organization    |
+      | Sabrina | Unnamed Company |
+    And The following users are granted with organization authorities
+      | firstname | organization    | authority    |
+      | Sabrina   | Unnamed Company | ROLE_SPONSOR |
+    And The following contents are saved
+      | organization    | name                 | value     |
+      | Unnamed Company | Unnamed Terms of Use | Blablabla |
+    And The following budgets are available
+      | organization    | name                | amountPerMember | isDistributed | sponsor | rules                |
+      | Unnamed Company | Unnamed Company Pot | 150             | false         | Sabrina | Unnamed Terms of Use |
+    And 2000 members join organization "Unnamed Company"
+    And "Sabrina" is logged in
+    When "Sabrina" distributes the "Unnamed Company Pot" budget
+    Then Last HTTP code was "200"
+    And Every member of organization "Unnamed Company" has an account on the "Unnamed Company Pot" budget
@@ -0,0 +1,37 @@
+Feature: Budget - Get Accounts
+  Verifies rules for getting accounts of a budget
+
+  Scenario: Paging goes on after the last account returned is deleted
+    Given Empty database
+    And The following organizations are registered
+      | name            |
+      | Unnamed Company |
+    And The following users are registered
+      | firstname | email                       | password |
+      | Mike      | mike@unnamedcompany.com     | mike     |
+      | Sabrina   | sabrina@unnamedcompany.com  | sabrina  |
+      | Sinclair  | sinclair@unnamedcompany.com | sinclair |
+    And The following users are members of organizations
+      | user     | organization    |
+      | Mike     | Unnamed Company |
+      | Sabrina  | Unnamed Company |
+      | Sinclair | Unnamed Company |
+    And The following contents are saved
+      | organization    | name                 | value     |
+      | Unnamed Company | Unnamed Terms of Use | Blablabla |
+    And The following budgets are available
+      | organization    | name                | amountPerMember | isDistributed | sponsor | rules                |
+      | Unnamed Company | Unnamed Company Pot | 150             | true          | Sabrina | Unnamed Terms of Use |
+    And The following accounts are created
+      | owner    | budget              | amount | initialAmount |
+      | Mike     | Unnamed Company Pot | 150    | 150           |
+      | Sabrina  | Unnamed Company Pot | 150    | 150           |
+      | Sinclair | Unnamed Company Pot | 150    | 150           |
+    And "Mike" is logged in
+    And "Mike" gets 2 accounts of the "Unnamed Company Pot" budget
+    And Last HTTP code was "200"
+    When The last account returned is deleted
+    And "Mike" gets the next 2 accounts of the "Unnamed Company Pot" budget
+    Then Last HTTP code was "200"
+    And It returns the accounts of the "Unnamed Company Pot" budget owned by
+      | Sinclair |
@@ -0,0 +1,34 @@
+Feature: Campaign - Refund
+  Verifies that donors of a campaign failing to be funded before its deadline are refunded
+
+  Scenario: Donors of a campaign not funded before its deadline get their donations back
+    Given Empty database
+    And The following organizations are registered
+      | name            |
+      | Unnamed Company |
+    And The following users are members of organization "Unnamed Company"
+      | firstname | email                      | password |
+      | Mike      | mike@unnamedcompany.com    | mike     |
+      | Sabrina   | sabrina@unnamedcompany.com | sabrina  |
+    And The following contents are saved
+      | organization    | name         | value     |
+      | Unnamed Company | Terms of Use | Blablabla |
+    And The following budgets are available
+      | organization    | name               | amountPerMember | isDistributed | sponsor | rules        |
+      | Unnamed Company | Annual Company Pot | 150             | true          | Sabrina | Terms of Use |
+    And The following accounts are created
+      | owner | budget             | amount | initialAmount |
+      | Mike  | Annual Company Pot | 100    | 150           |
+    And The following projects are created
+      | organization    | title           | leader  | status      | peopleRequired |
+      | Unnamed Company | Awesome Project | Sabrina | IN_PROGRESS | 2              |
+    And The following campaigns have a deadline reached
+      | project         | title            | budget             | status      | donationsRequired |
+      | Awesome Project | Awesome Campaign | Annual Company Pot | IN_PROGRESS | 200               |
+    And The following donations are made
+      | campaign         | budget             | contributor | amount |
+      | Awesome Campaign | Annual Company Pot | Mike        | 50     |
+    When The funding deadlines of campaigns are processed
+    Then The "Awesome Campaign" campaign is "FAILED"
+    And "Mike" has "0" donation on the "Annual Company Pot" account
+    And The "Annual Company Pot" account of "Mike" has an amount of "150"
@@ -29,7 +29,7 @@ Feature: Donation - Create
     When "Mike" submit the following donations
       | campaign         | budget             | amount |
       | Awesome Campaign | Annual Company Pot | 50     |
-    Then Last HTTP code was "201"
+    Then Last HTTP code was "202"
 
   Scenario: A member cannot contribute on a campaign with a nonexistent account or campaign
     Given Empty database
@@ -0,0 +1,112 @@
+Feature: Donation - Idempotency
+  Verifies that a donation submitted again with the same idempotency key is only made once
+
+  Scenario: A donation submitted again with the same idempotency key returns the current state of its operation
+    Given Empty database
+    And The following organizations are registered
+      | name            |
+      | Unnamed Company |
+    And The following users are members of organization "Unnamed Company"
+      | firstname | email                      | password |
+      | Mike      | mike@unnamedcompany.com    | mike     |
+      | Sabrina   | sabrina@unnamedcompany.com | sabrina  |
+    And The following contents are saved
+      | organization    | name         | value     |
+      | Unnamed Company | Terms of Use | Blablabla |
+    And The following budgets are available
+      | organization    | name               | amountPerMember | isDistributed | sponsor | rules        |
+      | Unnamed Company | Annual Company Pot | 150             | true          | Sabrina | Terms of Use |
+    And The following accounts are created
+      | owner | budget             | amount | initialAmount |
+      | Mike  | Annual Company Pot | 150    | 150           |
+    And The following projects are created
+      | organization    | title           | leader  | status      | peopleRequired |
+      | Unnamed Company | Awesome Project | Sabrina | IN_PROGRESS | 2              |
+    And The following campaigns are running
+      | project         | title            | budget             | status      | donationsRequired |
+      | Awesome Project | Awesome Campaign | Annual Company Pot | IN_PROGRESS | 200               |
+    And "Mike" is logged in
+    When "Mike" submit the following donation with the idempotency key "first-donation"
+      | campaign         | budget             | amount |
+      | Awesome Campaign | Annual Company Pot | 50     |
+    And Donation operations on the "Annual Company Pot" account of "Mike" are processed
+    And "Mike" submit the following donation with the idempotency key "first-donation"
+      | campaign         | budget             | amount |
+      | Awesome Campaign | Annual Company Pot | 50     |
+    Then Last HTTP code was "202"
+    And It returns the donation operation first submitted with the idempotency key "first-donation" as "APPLIED"
+    And "Mike" has "1" donation on the "Annual Company Pot" account
+
+  Scenario: An idempotency key cannot be used again for another donation
+    Given Empty database
+    And The following organizations are registered
+      | name            |
+      | Unnamed Company |
+    And The following users are members of organization "Unnamed Company"
+      | firstname | email                      | password |
+      | Mike      | mike@unnamedcompany.com    | mike     |
+      | Sabrina   | sabrina@unnamedcompany.com | sabrina  |
+    And The following contents are saved
+      | organization    | name         | value     |
+      | Unnamed Company | Terms of Use | Blablabla |
+    And The following budgets are available
+      | organization    | name               | amountPerMember | isDistributed | sponsor | rules        |
+      | Unnamed Company | Annual Company Pot | 150             | true          | Sabrina | Terms of Use |
+    And The following accounts are created
+      | owner | budget             | amount | initialAmount |
+      | Mike  | Annual Company Pot | 150    | 150           |
+    And The following projects are created
+      | organization    | title           | leader  | status      | peopleRequired |
+      | Unnamed Company | Awesome Project | Sabrina | IN_PROGRESS | 2              |
+    And The following campaigns are running
+      | project         | title            | budget             | status      | donationsRequired |
+      | Awesome Project | Awesome Campaign | Annual Company Pot | IN_PROGRESS | 200               |
+    And "Mike" is logged in
+    When "Mike" submit the following donation with the idempotency key "first-donation"
+      | campaign         | budget             | amount |
+      | Awesome Campaign | Annual Company Pot | 50     |
+    And "Mike" submit the following donation with the idempotency key "first-donation"
+      | campaign         | budget             | amount |
+      | Awesome Campaign | Annual Company Pot | 60     |
+    Then Last HTTP code was "400"
+    And Donation operations on the "Annual Company Pot" account of "Mike" are processed
+    And "Mike" has "1" donation on the "Annual Company Pot" account
+
+  Scenario: An idempotency key no longer cached is still found with the operation it was first used for
+    Given Empty database
+    And The following organizations are registered
+      | name            |
+      | Unnamed Company |
+    And The following users are members of organization "Unnamed Company"
+      | firstname | email                      | password |
+      | Mike      | mike@unnamedcompany.com    | mike     |
+      | Sabrina   | sabrina@unnamedcompany.com | sabrina  |
+    And The following contents are saved
+      | organization    | name         | value     |
+      | Unnamed Company | Terms of Use | Blablabla |
+    And The following budgets are available
+      | organization    | name               | amountPerMember | isDistributed | sponsor | rules        |
+      | Unnamed Company | Annual Company Pot | 150             | true          | Sabrina | Terms of Use |
+    And The following accounts are created
+      | owner | budget             | amount | initialAmount |
+      | Mike  | Annual Company Pot | 150    | 150           |
+    And The following projects are created
+      | organization    | title           | leader  | status      | peopleRequired |
+      | Unnamed Company | Awesome Project | Sabrina | IN_PROGRESS | 2              |
+    And The following campaigns are running
+      | project         | title            | budget             | status      | donationsRequired |
+      | Awesome Project | Awesome Campaign | Annual Company Pot | IN_PROGRESS | 200               |
+    And "Mike" is logged in
+    When "Mike" submit the following donation with the idempotency key "first-donation"
+      | campaign         | budget             | amount |
+      | Awesome Campaign | Annual Company Pot | 50     |
+    And "Mike" submit the following donation with the idempotency key "second-donation"
+      | campaign         | budget             | amount |
+      | Awesome Campaign | Annual Company Pot | 30     |
+    And Donation operations on the "Annual Company Pot" account of "Mike" are processed
+    And "Mike" submit the following donation with the idempotency key "first-donation"
+      | campaign         | budget             | amount |
+      | Awesome Campaign | Annual Company Pot | 50     |
+    Then Last HTTP code was "202"
+    And It returns the donation operation first submitted with the idempotency key "first-donation" as "APPLIED"
+    And "Mike" has "2" donation on the "Annual Company Pot" account
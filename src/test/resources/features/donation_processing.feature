@@ -0,0 +1,131 @@
+Feature: Donation - Processing
+  Verifies how submitted donations are applied and controlled
+
+  Scenario: Donations submitted at the same time on one account cannot overdraw it
+    Given Empty database
+    And The following organizations are registered
+      | name            |
+      | Unnamed Company |
+    And The following users are members of organization "Unnamed Company"
+      | firstname | email                      | password |
+      | Mike      | mike@unnamedcompany.com    | mike     |
+      | Sabrina   | sabrina@unnamedcompany.com | sabrina  |
+    And The following contents are saved
+      | organization    | name         | value     |
+      | Unnamed Company | Terms of Use | Blablabla |
+    And The following budgets are available
+      | organization    | name               | amountPerMember | isDistributed | sponsor | rules        |
+      | Unnamed Company | Annual Company Pot | 150             | true          | Sabrina | Terms of Use |
+    And The following accounts are created
+      | owner | budget             | amount | initialAmount |
+      | Mike  | Annual Company Pot | 150    | 150           |
+    And The following projects are created
+      | organization    | title           | leader  | status      | peopleRequired |
+      | Unnamed Company | Awesome Project | Sabrina | IN_PROGRESS | 2              |
+    And The following campaigns are running
+      | project         | title            | budget             | status      | donationsRequired |
+      | Awesome Project | Awesome Campaign | Annual Company Pot | IN_PROGRESS | 500               |
+    And "Mike" is logged in
+    When "Mike" submit the following donations at the same time
+      | campaign         | budget             | amount |
+      | Awesome Campaign | Annual Company Pot | 50     |
+      | Awesome Campaign | Annual Company Pot | 50     |
+      | Awesome Campaign | Annual Company Pot | 50     |
+      | Awesome Campaign | Annual Company Pot | 50     |
+      | Awesome Campaign | Annual Company Pot | 50     |
+    Then Last HTTP code was "202"
+    And Donation operations on the "Annual Company Pot" account of "Mike" are processed
+    And "3" donation operations on the "Annual Company Pot" account of "Mike" are "APPLIED"
+    And "2" donation operations on the "Annual Company Pot" account of "Mike" are "REJECTED"
+    And "Mike" has "3" donation on the "Annual Company Pot" account
+    And The "Annual Company Pot" account of "Mike" has an amount of "0"
+
+  Scenario: A donation failing on concurrent updates is retried, then rejected
+    Given Empty database
+    And The following organizations are registered
+      | name            |
+      | Unnamed Company |
+    And The following users are members of organization "Unnamed Company"
+      | firstname | email                      | password |
+      | Mike      | mike@unnamedcompany.com    | mike     |
+      | Sabrina   | sabrina@unnamedcompany.com | sabrina  |
+    And The following contents are saved
+      | organization    | name         | value     |
+      | Unnamed Company | Terms of Use | Blablabla |
+    And The following budgets are available
+      | organization    | name               | amountPerMember | isDistributed | sponsor | rules        |
+      | Unnamed Company | Annual Company Pot | 150             | true          | Sabrina | Terms of Use |
+    And The following accounts are created
+      | owner | budget             | amount | initialAmount |
+      | Mike  | Annual Company Pot | 150    | 150           |
+    And The following projects are created
+      | organization    | title           | leader  | status      | peopleRequired |
+      | Unnamed Company | Awesome Project | Sabrina | IN_PROGRESS | 2              |
+    And The following campaigns are running
+      | project         | title            | budget             | status      | donationsRequired |
+      | Awesome Project | Awesome Campaign | Annual Company Pot | IN_PROGRESS | 200               |
+    And Donations to the "Awesome Campaign" campaign fail with a serialization failure
+    And "Mike" is logged in
+    When "Mike" submit the following donations
+      | campaign         | budget             | amount |
+      | Awesome Campaign | Annual Company Pot | 50     |
+    Then Last HTTP code was "202"
+    And Donation operations on the "Annual Company Pot" account of "Mike" are processed
+    And "1" donation operation on the "Annual Company Pot" account of "Mike" is "REJECTED"
+    And Donation operations on the "Annual Company Pot" account of "Mike" were attempted "3" times
+    And "Mike" has "0" donation on the "Annual Company Pot" account
+    And The "Annual Company Pot" account of "Mike" has an amount of "150"
+
+  Scenario: A reconciliation records an account amount that does not match its donations
+    Given Empty database
+    And The following organizations are registered
+      | name            |
+      | Unnamed Company |
+    And The following users are members of organization "Unnamed Company"
+      | firstname | email                      | password |
+      | Mike      | mike@unnamedcompany.com    | mike     |
+      | Sabrina   | sabrina@unnamedcompany.com | sabrina  |
+    And The following contents are saved
+      | organization    | name         | value     |
+      | Unnamed Company | Terms of Use | Blablabla |
+    And The following budgets are available
+      | organization    | name               | amountPerMember | isDistributed | sponsor | rules        |
+      | Unnamed Company | Annual Company Pot | 150             | true          | Sabrina | Terms of Use |
+    And The following accounts are created
+      | owner | budget             | amount | initialAmount |
+      | Mike  | Annual Company Pot | 150    | 150           |
+    And The amount of the "Annual Company Pot" account of "Mike" is set to "140"
+    When A full donation reconciliation is run
+    Then The reconciliation records an "ACCOUNT_AMOUNT" mismatch on the "Annual Company Pot" account of "Mike"
+
+  Scenario: An incremental reconciliation checks the accounts refunded since the last run
+    Given Empty database
+    And The following organizations are registered
+      | name            |
+      | Unnamed Company |
+    And The following users are members of organization "Unnamed Company"
+      | firstname | email                      | password |
+      | Mike      | mike@unnamedcompany.com    | mike     |
+      | Sabrina   | sabrina@unnamedcompany.com | sabrina  |
+    And The following contents are saved
+      | organization    | name         | value     |
+      | Unnamed Company | Terms of Use | Blablabla |
+    And The following budgets are available
+      | organization    | name               | amountPerMember | isDistributed | sponsor | rules        |
+      | Unnamed Company | Annual Company Pot | 150             | true          | Sabrina | Terms of Use |
+    And The following accounts are created
+      | owner | budget             | amount | initialAmount |
+      | Mike  | Annual Company Pot | 150    | 150           |
+    And The following projects are created
+      | organization    | title           | leader  | status      | peopleRequired |
+      | Unnamed Company | Awesome Project | Sabrina | IN_PROGRESS | 2              |
+    And The following campaigns have a deadline reached
+      | project         | title            | budget             | status      | donationsRequired |
+      | Awesome Project | Awesome Campaign | Annual Company Pot | IN_PROGRESS | 200               |
+    And The following donations are made
+      | campaign         | budget             | contributor | amount |
+      | Awesome Campaign | Annual Company Pot | Mike        | 50     |
+    And A full donation reconciliation is run
+    When The funding deadlines of campaigns are processed
+    And An incremental donation reconciliation is run
+    Then The reconciliation records an "ACCOUNT_AMOUNT" mismatch on the "Annual Company Pot" account of "Mike"
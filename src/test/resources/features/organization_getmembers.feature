@@ -0,0 +1,19 @@
+Feature: Organization - Get Members
+  Verifies rules for getting members of an organization
+
+  Scenario: Paging through members with a cursor returns every member once, despite homonyms
+    Given Empty database
+    And The following organizations are registered
+      | name            |
+      | Unnamed Company |
+    And The following users are registered
+      | firstname | email                   | password |
+      | Mike      | mike@unnamedcompany.com | mike     |
+    And The following users are members of organizations
+      | user | organization    |
+      | Mike | Unnamed Company |
+    And 7 users named "Jane" "Doe" are members of organization "Unnamed Company"
+    And 3 users named "Jane" "" are members of organization "Unnamed Company"
+    And "Mike" is logged in
+    When "Mike" pages through the members of organization "Unnamed Company" 3 at a time
+    Then Every member of organization "Unnamed Company" is returned once
@@ -0,0 +1,40 @@
+Feature: Projects - Get by IDs
+  Verifies rules for getting several projects at once
+
+  Scenario: Getting several projects costs as many statements as getting one
+    Given Empty database
+    And The following organizations are registered
+      | name            |
+      | Unnamed Company |
+    And The following users are registered
+      | firstname | email                      | password |
+      | Mike      | mike@unnamedcompany.com    | mike     |
+      | Sabrina   | sabrina@unnamedcompany.com | sabrina  |
+    And The following users are members of organizations
+      | user    | organization    |
+      | Mike    | Unnamed Company |
+      | Sabrina | Unnamed Company |
+    And The following contents are saved
+      | organization    | name                 | value     |
+      | Unnamed Company | Unnamed Terms of Use | Blablabla |
+    And The following budgets are available
+      | organization    | name                | amountPerMember | isDistributed | sponsor | rules                |
+      | Unnamed Company | Unnamed Company Pot | 150             | true          | Sabrina | Unnamed Terms of Use |
+    And The following projects are created
+      | organization    | title      | leader  | peopleRequired |
+      | Unnamed Company | Project #1 | Sabrina | 2              |
+      | Unnamed Company | Project #2 | Sabrina | 2              |
+      | Unnamed Company | Project #3 | Mike    | 2              |
+      | Unnamed Company | Project #4 | Mike    | 2              |
+    And The following campaigns are running
+      | project    | budget              | title       | status      | donationsRequired |
+      | Project #1 | Unnamed Company Pot | Campaign #1 | IN_PROGRESS | 400               |
+      | Project #2 | Unnamed Company Pot | Campaign #2 | IN_PROGRESS | 400               |
+      | Project #3 | Unnamed Company Pot | Campaign #3 | IN_PROGRESS | 400               |
+      | Project #4 | Unnamed Company Pot | Campaign #4 | IN_PROGRESS | 400               |
+    Then Getting the following projects as "Mike" costs as many statements as getting the first one
+      | title      |
+      | Project #1 |
+      | Project #2 |
+      | Project #3 |
+      | Project #4 |
@@ -0,0 +1,20 @@
+Feature: Query plans
+  Verifies that hot lookups are served by an index
+
+  Scenario Outline: A hot lookup reads its table through a secondary index
+    Given Empty database
+    When The "<lookup>" lookup is explained against a populated "<table>" table
+    Then The plan reads "<table>" through a secondary index
+
+    Examples:
+      | table               | lookup                          |
+      | donations           | donations of a campaign         |
+      | donations           | donations of accounts           |
+      | accounts            | account of an owner in a budget |
+      | accounts            | accounts of a budget            |
+      | organizations_users | authorizations of a user        |
+      | projects            | projects of an organization     |
+      | notifications       | notifications since a date      |
+      | votes               | vote of a user on a project     |
+      | slack_user          | Slack user by Slack ID          |
+      | news                | latest news of a project        |